@@ -1,13 +1,34 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import com.didapinche.commons.redis.exceptions.MultiKeyRedisClientException;
 import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.nio.NioRedisTransport;
+import com.didapinche.commons.redis.nio.RespCommand;
+import com.didapinche.commons.redis.nio.RespReplyLostException;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import redis.clients.jedis.*;
-
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Project: redis client
@@ -16,13 +37,56 @@ import java.util.Set;
  *
  * Copyright 2015 didapinche.com
  */
-public abstract class AbstractRedisClient implements RedisClient{
+public abstract class AbstractRedisClient implements RedisClient, BinaryRedisClient{
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractRedisClient.class);
 
     /**
      * 是否读写分离
      */
     protected boolean autoReadFromSlave = true;
 
+    /**
+     * 是否合并并发的get/hget（默认关闭）
+     */
+    private boolean readCoalescing = false;
+
+    /**
+     * 合并读的时间窗口 us
+     */
+    private long coalesceWindowMicros = 200;
+
+    /**
+     * 合并读一批的最大数量，攒满立即发送
+     */
+    private int coalesceMaxBatchSize = 64;
+
+    private volatile ReadCoalescer readCoalescer;
+
+    /**
+     * 相同并发读命令合并执行，默认关闭
+     */
+    private volatile SingleFlight singleFlight;
+
+    /**
+     * NIO多路复用传输层，设置后常用单key命令不再占用连接池连接
+     */
+    private NioRedisTransport transport;
+
+    /**
+     * 本地缓存，默认关闭
+     */
+    private volatile NearCache nearCache;
+
+    private volatile JedisPubSub invalidationSubscriber;
+
+    /**
+     * 后台预取scan分页的线程池，未设置时按scanThreads创建
+     */
+    private volatile ExecutorService scanExecutor;
+
+    private int scanThreads = Runtime.getRuntime().availableProcessors();
+
 
     protected static interface CallBack<T>{
         T execute(JedisCommands jedis);
@@ -39,6 +103,84 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     protected abstract <T> T execute(CallBack<T> callBack, boolean readonly,int retryTimes);
 
+    /**
+     * 配置了传输层时命令走多路复用连接，连接异常时退回连接池执行callBack。
+     * 写命令已经写出后才失败（断开、读超时）时服务端可能已经执行，直接抛出异常，不再重复执行
+     */
+    protected <T> T execute(final CallBack<T> callBack, final boolean readonly, final RespCommand<T> command) {
+        SingleFlight flight = singleFlight;
+        if (readonly && flight != null && flight.isEnabled(command.getCommand())) {
+            return flight.execute(command.signature(), new Callable<T>() {
+                public T call() {
+                    return executeCommand(callBack, readonly, command);
+                }
+            });
+        }
+        return executeCommand(callBack, readonly, command);
+    }
+
+    protected <T> T executeCommand(CallBack<T> callBack, boolean readonly, RespCommand<T> command) {
+        if (transport != null) {
+            HostAndPort slave = readonly && autoReadFromSlave ? routeSlave(command.getKey()) : null;
+            HostAndPort hostAndPort = slave != null ? slave : routeMaster(command.getKey());
+            //与连接池路径一样把slave上的耗时交给选择策略
+            SlaveBalancer balancer = slave != null ? getSlaveBalancer() : null;
+            long start = 0;
+            boolean success = false;
+            try {
+                if (balancer != null) {
+                    balancer.onStart(slave);
+                    start = System.nanoTime();
+                }
+                T result = transport.execute(hostAndPort, command);
+                success = true;
+                return result;
+            } catch (RespReplyLostException e) {
+                if (!readonly) {
+                    throw e;
+                }
+                logger.warn("transport to " + hostAndPort + " failed, fall back to pool: " + e.getMessage());
+            } catch (JedisConnectionException e) {
+                logger.warn("transport to " + hostAndPort + " failed, fall back to pool: " + e.getMessage());
+            } catch (JedisDataException e) {
+                //命令错误不是节点故障，按正常响应计入耗时
+                success = true;
+                throw e;
+            } finally {
+                if (start != 0) {
+                    balancer.onComplete(slave, System.nanoTime() - start, success);
+                }
+            }
+        }
+        return execute(callBack, readonly, command.getKey());
+    }
+
+    /**
+     * 单key命令，分片客户端按key只借用所在分片的连接
+     */
+    protected <T> T execute(CallBack<T> callBack, boolean readonly, String key) {
+        return execute(callBack, readonly);
+    }
+
+    protected <T> T execute(CallBack<T> callBack, boolean readonly, byte[] key) {
+        return execute(callBack, readonly);
+    }
+
+    /**
+     * key所在的master节点
+     */
+    protected abstract HostAndPort routeMaster(String key);
+
+    /**
+     * 读key时选用的slave节点，key所在分片没有slave时返回null
+     */
+    protected abstract HostAndPort routeSlave(String key);
+
+    /**
+     * slave选择策略，命令在slave上执行前后回调
+     */
+    protected abstract SlaveBalancer getSlaveBalancer();
+
 
     protected static interface MultiKeyCallBack<T>{
         T execute(MultiKeyCommands jedis);
@@ -55,30 +197,459 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     protected abstract <T> T execute(MultiKeyCallBack<T> callBack, boolean readonly,int retryTimes) throws MultiKeyRedisClientException;
 
+    protected static interface BinaryCallBack<T>{
+        T execute(BinaryJedisCommands jedis);
+    }
+
+    protected <T> T execute(BinaryCallBack<T> callBack) {
+        return execute(callBack,false);
+    }
+
+    /**
+     * 两种实现的连接（Jedis、ShardedJedis）都实现了BinaryJedisCommands
+     */
+    protected <T> T execute(final BinaryCallBack<T> callBack,boolean readonly) {
+        return execute(new CallBack<T>() {
+            public T execute(JedisCommands jedis) {
+                return callBack.execute((BinaryJedisCommands) jedis);
+            }
+        }, readonly);
+    }
+
+    protected <T> T execute(final BinaryCallBack<T> callBack, boolean readonly, byte[] key) {
+        return execute(new CallBack<T>() {
+            public T execute(JedisCommands jedis) {
+                return callBack.execute((BinaryJedisCommands) jedis);
+            }
+        }, readonly, key);
+    }
+
+    protected static interface MultiKeyBinaryCallBack<T>{
+        T execute(MultiKeyBinaryCommands jedis);
+    }
+
+    protected <T> T execute(MultiKeyBinaryCallBack<T> callBack) {
+        return execute(callBack,false);
+    }
+
+    protected <T> T execute(final MultiKeyBinaryCallBack<T> callBack,boolean readonly) {
+        return execute(new MultiKeyCallBack<T>() {
+            public T execute(MultiKeyCommands jedis) {
+                return callBack.execute((MultiKeyBinaryCommands) jedis);
+            }
+        }, readonly);
+    }
+
+    /**
+     * 创建一个批量命令，命令在execute时通过pipeline一次发送
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(this);
+    }
+
+    protected abstract void execute(RedisBatch batch, int retryTimes);
+
+    /**
+     * 写命令执行成功后失效本地缓存并通知其他JVM
+     */
+    protected <T> T afterWrite(String key, T result) {
+        NearCache cache = nearCache;
+        if (cache != null && key != null && cache.isCacheable(key)) {
+            cache.invalidate(key);
+            publishInvalidation(cache, key);
+        }
+        return result;
+    }
+
+    protected <T> T afterWrite(byte[] key, T result) {
+        if (nearCache != null) {
+            afterWrite(SafeEncoder.encode(key), null);
+        }
+        return result;
+    }
+
+    /**
+     * @param stride 相邻两个key的间隔，mset等key、value交替的参数为2
+     */
+    protected <T> T afterWrite(String[] keys, int stride, T result) {
+        if (nearCache != null) {
+            for (int i = 0; i < keys.length; i += stride) {
+                afterWrite(keys[i], null);
+            }
+        }
+        return result;
+    }
+
+    protected <T> T afterWrite(byte[][] keys, int stride, T result) {
+        if (nearCache != null) {
+            for (int i = 0; i < keys.length; i += stride) {
+                afterWrite(SafeEncoder.encode(keys[i]), null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 发布失效通知，发布失败只记录日志，其他JVM的缓存最多在ttl后过期
+     */
+    protected void publishInvalidation(NearCache cache, String key) {
+        try {
+            publish(cache.getChannel(), cache.invalidationMessage(key));
+        } catch (Exception e) {
+            logger.warn("publish near cache invalidation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 订阅其他JVM的失效通知，独占一个连接，断开后清空本地缓存并重新订阅
+     */
+    private void subscribeInvalidation(final NearCache cache) {
+        final JedisPubSub subscriber = new JedisPubSub() {
+            @Override
+            public void onSubscribe(String channel, int subscribedChannels) {
+                //订阅建立前已经被关闭
+                if (nearCache != cache) {
+                    unsubscribe();
+                }
+            }
+
+            @Override
+            public void onMessage(String channel, String message) {
+                cache.onInvalidation(message);
+            }
+        };
+        invalidationSubscriber = subscriber;
+
+        Thread thread = new NamedThreadFactory("near-cache-invalidation").newThread(new Runnable() {
+            @Override
+            public void run() {
+                while (nearCache == cache) {
+                    NodeLease lease = null;
+                    try {
+                        lease = leaseNodes(cache.getChannel(), false);
+                        //断开期间可能丢失通知
+                        cache.clear();
+                        lease.getNodes().get(0).subscribe(subscriber, cache.getChannel());
+                    } catch (Exception e) {
+                        logger.warn("near cache invalidation subscriber disconnected: " + e.getMessage());
+                        try {
+                            Thread.sleep(1000);
+                        } catch (InterruptedException ie) {
+                            return;
+                        }
+                    } finally {
+                        if (lease != null) {
+                            try {
+                                lease.close();
+                            } catch (IOException e) {
+                                logger.warn("occur exception while close the subscriber connection", e);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        thread.start();
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * 开启本地缓存，null关闭
+     */
+    public synchronized void setNearCache(NearCache nearCache) {
+        JedisPubSub subscriber = invalidationSubscriber;
+        this.nearCache = nearCache;
+        if (subscriber != null) {
+            invalidationSubscriber = null;
+            try {
+                subscriber.unsubscribe();
+            } catch (Exception e) {
+                logger.warn("unsubscribe near cache invalidation failed: " + e.getMessage());
+            }
+        }
+        if (nearCache != null) {
+            subscribeInvalidation(nearCache);
+        }
+    }
+
+    /**
+     * 按节点遍历时借出的连接，遍历结束后归还
+     */
+    protected static final class NodeLease implements Closeable {
+
+        private final List<Jedis> nodes;
+
+        private final Closeable resource;
+
+        public NodeLease(List<Jedis> nodes, Closeable resource) {
+            this.nodes = nodes;
+            this.resource = resource;
+        }
+
+        public List<Jedis> getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            resource.close();
+        }
+    }
+
+    /**
+     * 借出节点连接，key为null时借出所有分片，否则只借出key所在的分片
+     */
+    protected abstract NodeLease leaseNodes(String key, boolean readonly);
+
+    /**
+     * 惰性遍历整个keyspace，逐个分片遍历，后台预取下一页
+     *
+     * @param match 为null时不过滤
+     * @param count 每页的COUNT提示，小于等于0时使用redis默认值
+     */
+    public ScanIterator<String> scanKeys(String match, int count) {
+        return scanKeys(match, count, 1);
+    }
+
+    /**
+     * 惰性遍历整个keyspace，parallelism个分片同时遍历，读写分离时读slave
+     * <p/>
+     * 遍历完自动归还连接，中途放弃时必须close
+     */
+    public ScanIterator<String> scanKeys(String match, int count, int parallelism) {
+        final ScanParams params = ScanIterator.scanParams(match, count);
+        return scanIterator(null, parallelism, new NodeScanner<String>() {
+            @Override
+            public ScanResult<String> scan(Jedis node, String cursor) {
+                return node.scan(cursor, params);
+            }
+        });
+    }
+
+    /**
+     * 惰性遍历hash，后台预取下一页，读写分离时读slave
+     */
+    public ScanIterator<Map.Entry<String, String>> hscanIterator(final String key, String match, int count) {
+        final ScanParams params = ScanIterator.scanParams(match, count);
+        return scanIterator(key, 1, new NodeScanner<Map.Entry<String, String>>() {
+            @Override
+            public ScanResult<Map.Entry<String, String>> scan(Jedis node, String cursor) {
+                return node.hscan(key, cursor, params);
+            }
+        });
+    }
+
+    /**
+     * 惰性遍历set，后台预取下一页，读写分离时读slave
+     */
+    public ScanIterator<String> sscanIterator(final String key, String match, int count) {
+        final ScanParams params = ScanIterator.scanParams(match, count);
+        return scanIterator(key, 1, new NodeScanner<String>() {
+            @Override
+            public ScanResult<String> scan(Jedis node, String cursor) {
+                return node.sscan(key, cursor, params);
+            }
+        });
+    }
+
+    /**
+     * 惰性遍历sorted set，后台预取下一页，读写分离时读slave
+     */
+    public ScanIterator<Tuple> zscanIterator(final String key, String match, int count) {
+        final ScanParams params = ScanIterator.scanParams(match, count);
+        return scanIterator(key, 1, new NodeScanner<Tuple>() {
+            @Override
+            public ScanResult<Tuple> scan(Jedis node, String cursor) {
+                return node.zscan(key, cursor, params);
+            }
+        });
+    }
+
+    /**
+     * 逐个处理hash的field，不会把整个hash读入内存
+     *
+     * @return 处理的元素个数
+     */
+    public long hscanEach(String key, String match, int count, ScanIterator.Consumer<Map.Entry<String, String>> consumer) {
+        return ScanIterator.each(hscanIterator(key, match, count), consumer);
+    }
+
+    /**
+     * 逐个处理set的member，不会把整个set读入内存
+     *
+     * @return 处理的元素个数
+     */
+    public long sscanEach(String key, String match, int count, ScanIterator.Consumer<String> consumer) {
+        return ScanIterator.each(sscanIterator(key, match, count), consumer);
+    }
+
+    /**
+     * 逐个处理sorted set的member，不会把整个sorted set读入内存
+     *
+     * @return 处理的元素个数
+     */
+    public long zscanEach(String key, String match, int count, ScanIterator.Consumer<Tuple> consumer) {
+        return ScanIterator.each(zscanIterator(key, match, count), consumer);
+    }
+
+    private static interface NodeScanner<T> {
+        ScanResult<T> scan(Jedis node, String cursor);
+    }
+
+    private <T> ScanIterator<T> scanIterator(String key, int parallelism, final NodeScanner<T> scanner) {
+        NodeLease lease = leaseNodes(key, true);
+
+        List<ScanIterator.PageSource<T>> sources = new ArrayList<>();
+        for (final Jedis node : lease.getNodes()) {
+            sources.add(new ScanIterator.PageSource<T>() {
+                @Override
+                public ScanResult<T> scan(String cursor) {
+                    return scanner.scan(node, cursor);
+                }
+            });
+        }
+        return new ScanIterator<>(sources, getScanExecutor(), parallelism, lease);
+    }
+
+    protected ExecutorService getScanExecutor() {
+        if (scanExecutor == null) {
+            synchronized (this) {
+                if (scanExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(scanThreads, scanThreads, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("redis-scan"));
+                    executor.allowCoreThreadTimeOut(true);
+                    scanExecutor = executor;
+                }
+            }
+        }
+        return scanExecutor;
+    }
+
+    public void setScanExecutor(ExecutorService scanExecutor) {
+        this.scanExecutor = scanExecutor;
+    }
+
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+
+    /**
+     * 合并读使用的只读mget
+     */
+    protected List<String> coalescedMget(final String... keys) {
+        return execute(new MultiKeyCallBack<List<String>>() {
+            public List<String> execute(MultiKeyCommands jedis) {
+                return jedis.mget(keys);
+            }
+        }, true);
+    }
+
+    private ReadCoalescer getReadCoalescer() {
+        if (!readCoalescing) {
+            return null;
+        }
+        if (readCoalescer == null) {
+            synchronized (this) {
+                if (readCoalescer == null) {
+                    readCoalescer = new ReadCoalescer(this, coalesceWindowMicros, coalesceMaxBatchSize);
+                }
+            }
+        }
+        return readCoalescer;
+    }
+
+    public boolean isReadCoalescing() {
+        return readCoalescing;
+    }
+
+    public void setReadCoalescing(boolean readCoalescing) {
+        this.readCoalescing = readCoalescing;
+    }
+
+    public long getCoalesceWindowMicros() {
+        return coalesceWindowMicros;
+    }
+
+    public void setCoalesceWindowMicros(long coalesceWindowMicros) {
+        this.coalesceWindowMicros = coalesceWindowMicros;
+        this.readCoalescer = null;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public NioRedisTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(NioRedisTransport transport) {
+        this.transport = transport;
+    }
+
+    public int getCoalesceMaxBatchSize() {
+        return coalesceMaxBatchSize;
+    }
+
+    public void setCoalesceMaxBatchSize(int coalesceMaxBatchSize) {
+        this.coalesceMaxBatchSize = coalesceMaxBatchSize;
+        this.readCoalescer = null;
+    }
+
     /* multi jedis Commands*/
 
     public String set(final String key, final String value) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.set(key,value);
             }
-        },false);
+        }, false, RespCommand.of(key, BuilderFactory.STRING, "SET", key, value)));
     }
 
     public String set(final String key, final String value, final String nxxx, final String expx, final long time) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.set(key,value,nxxx,expx,time);
             }
-        },false);
+        }, false, key));
     }
 
     public String get(final String key) {
+        NearCache cache = nearCache;
+        if (cache != null && cache.isCacheable(key)) {
+            Object cached = cache.get(key);
+            if (cached != NearCache.MISS) {
+                return (String) cached;
+            }
+            long stamp = cache.stamp(key);
+            //从master加载，避免刚失效后从库的旧值被缓存
+            RedisBatch batch = batch().readFromMaster();
+            BatchResponse<String> value = batch.get(key);
+            BatchResponse<Long> ttl = batch.ttl(key);
+            batch.execute();
+            cache.putValue(key, value.get(), ttl.get(), stamp);
+            return value.get();
+        }
+        ReadCoalescer coalescer = getReadCoalescer();
+        if (coalescer != null) {
+            return coalescer.get(key);
+        }
         return execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.get(key);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING, "GET", key));
     }
 
     public Boolean exists(final String key) {
@@ -86,15 +657,15 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Boolean execute(JedisCommands jedis) {
                 return jedis.exists(key);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.BOOLEAN, "EXISTS", key));
     }
 
     public Long persist(final String key) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.persist(key);
             }
-        },false);
+        }, false, key));
     }
 
     public String type(final String key) {
@@ -102,40 +673,40 @@ public abstract class AbstractRedisClient implements RedisClient{
             public String execute(JedisCommands jedis) {
                 return jedis.type(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Long expire(final String key, final int seconds) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.expire(key, seconds);
             }
-        },false);
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "EXPIRE", key, String.valueOf(seconds))));
     }
 
+    @Deprecated
     public Long pexpire(final String key, final long milliseconds) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.pexpire(key, milliseconds);
             }
-        });
+        }, false, key));
     }
 
     public Long expireAt(final String key, final long unixTime) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.expireAt(key, unixTime);
             }
-        });
-
+        }, false, key));
     }
 
     public Long pexpireAt(final String key, final long millisecondsTimestamp) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.expireAt(key, millisecondsTimestamp);
             }
-        });
+        }, false, key));
     }
 
     public Long ttl(final String key) {
@@ -143,23 +714,23 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.ttl(key);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.LONG, "TTL", key));
     }
 
     public Boolean setbit(final String key, final long offset, final boolean value) {
-        return execute(new CallBack<Boolean>() {
+        return afterWrite(key, execute(new CallBack<Boolean>() {
             public Boolean execute(JedisCommands jedis) {
                 return jedis.setbit(key, offset,value);
             }
-        });
+        }, false, key));
     }
 
     public Boolean setbit(final String key, final long offset, final String value) {
-        return execute(new CallBack<Boolean>() {
+        return afterWrite(key, execute(new CallBack<Boolean>() {
             public Boolean execute(JedisCommands jedis) {
                 return jedis.setbit(key, offset,value);
             }
-        });
+        }, false, key));
     }
 
     public Boolean getbit(final String key, final long offset) {
@@ -167,15 +738,15 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Boolean execute(JedisCommands jedis) {
                 return jedis.getbit(key, offset);
             }
-        },true);
+        }, true, key);
     }
 
     public Long setrange(final String key, final long offset, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.setrange(key, offset, value);
             }
-        });
+        }, false, key));
     }
 
     public String getrange(final String key, final long startOffset, final long endOffset) {
@@ -183,79 +754,79 @@ public abstract class AbstractRedisClient implements RedisClient{
             public String execute(JedisCommands jedis) {
                 return jedis.getrange(key, startOffset, endOffset);
             }
-        },true);
+        }, true, key);
     }
 
     public String getSet(final String key, final String value) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.getSet(key, value);
             }
-        });
+        }, false, key));
     }
 
     public Long setnx(final String key, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.setnx(key, value);
             }
-        });
+        }, false, key));
     }
 
     public String setex(final String key, final int seconds, final String value) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.setex(key, seconds, value);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.STRING, "SETEX", key, String.valueOf(seconds), value)));
     }
 
     public Long decrBy(final String key, final long integer) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.decrBy(key, integer);
             }
-        });
+        }, false, key));
     }
 
     public Long decr(final String key) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.decr(key);
             }
-        });
+        }, false, key));
     }
 
     public Long incrBy(final String key, final long integer) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.incrBy(key, integer);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "INCRBY", key, String.valueOf(integer))));
     }
 
     public Double incrByFloat(final String key, final double value) {
-        return execute(new CallBack<Double>() {
+        return afterWrite(key, execute(new CallBack<Double>() {
             public Double execute(JedisCommands jedis) {
                 return jedis.incrByFloat(key, value);
             }
-        });
+        }, false, key));
     }
 
     public Long incr(final String key) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.incr(key);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "INCR", key)));
     }
 
     public Long append(final String key, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.append(key, value);
             }
-        });
+        }, false, key));
     }
 
     public String substr(final String key, final int start, final int end) {
@@ -263,39 +834,58 @@ public abstract class AbstractRedisClient implements RedisClient{
             public String execute(JedisCommands jedis) {
                 return jedis.substr(key, start, end);
             }
-        });
+        }, false, key);
     }
 
     public Long hset(final String key, final String field, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.hset(key, field, value);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "HSET", key, field, value)));
     }
 
     public String hget(final String key, final String field) {
+        NearCache cache = nearCache;
+        if (cache != null && cache.isCacheable(key)) {
+            Object cached = cache.hget(key, field);
+            if (cached != NearCache.MISS) {
+                return (String) cached;
+            }
+            long stamp = cache.stamp(key);
+            //从master加载，避免刚失效后从库的旧值被缓存
+            RedisBatch batch = batch().readFromMaster();
+            BatchResponse<String> value = batch.hget(key, field);
+            BatchResponse<Long> ttl = batch.ttl(key);
+            batch.execute();
+            cache.putField(key, field, value.get(), ttl.get(), stamp);
+            return value.get();
+        }
+        ReadCoalescer coalescer = getReadCoalescer();
+        if (coalescer != null) {
+            return coalescer.hget(key, field);
+        }
         return execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.hget(key, field);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING, "HGET", key, field));
     }
 
     public Long hsetnx(final String key, final String field, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.hsetnx(key, field,value);
             }
-        });
+        }, false, key));
     }
 
     public String hmset(final String key, final Map<String, String> hash) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.hmset(key, hash);
             }
-        });
+        }, false, key));
     }
 
     public List<String> hmget(final String key, final String... fields) {
@@ -303,20 +893,20 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.hmget(key, fields);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING_LIST, "HMGET", RespCommand.join(key, fields)));
     }
 
     public Long hincrBy(final String key, final String field, final long value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.hincrBy(key, field, value);
             }
-        });
+        }, false, key));
     }
 
 
     public Double hincrByFloat(final String key, final String field, final double value){
-        return execute(new CallBack<Double>() {
+        return afterWrite(key, execute(new CallBack<Double>() {
             public Double execute(JedisCommands jedis) {
                 if(jedis instanceof  Jedis) {
                    return ((Jedis) jedis).hincrByFloat(key, field, value);
@@ -326,7 +916,7 @@ public abstract class AbstractRedisClient implements RedisClient{
                     throw new RedisClientException("error jedis type");
                 }
             }
-        });
+        }, false, key));
     }
 
     public Boolean hexists(final String key, final String field) {
@@ -334,15 +924,15 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Boolean execute(JedisCommands jedis) {
                 return jedis.hexists(key, field);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.BOOLEAN, "HEXISTS", key, field));
     }
 
     public Long hdel(final String key, final String... field) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.hdel(key, field);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "HDEL", RespCommand.join(key, field))));
     }
 
     public Long hlen(final String key) {
@@ -350,7 +940,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.hlen(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> hkeys(final String key) {
@@ -358,7 +948,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.hkeys(key);
             }
-        },true);
+        }, true, key);
     }
 
     public List<String> hvals(final String key) {
@@ -366,31 +956,47 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.hvals(key);
             }
-        },true);
+        }, true, key);
     }
 
+    @SuppressWarnings("unchecked")
     public Map<String, String> hgetAll(final String key) {
+        NearCache cache = nearCache;
+        if (cache != null && cache.isCacheable(key)) {
+            Object cached = cache.hgetAll(key);
+            if (cached != NearCache.MISS) {
+                return new HashMap<>((Map<String, String>) cached);
+            }
+            long stamp = cache.stamp(key);
+            //从master加载，避免刚失效后从库的旧值被缓存
+            RedisBatch batch = batch().readFromMaster();
+            BatchResponse<Map<String, String>> value = batch.hgetAll(key);
+            BatchResponse<Long> ttl = batch.ttl(key);
+            batch.execute();
+            cache.putHash(key, value.get(), ttl.get(), stamp);
+            return value.get();
+        }
         return execute(new CallBack<Map<String, String>>() {
             public Map<String, String> execute(JedisCommands jedis) {
                 return jedis.hgetAll(key);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING_MAP, "HGETALL", key));
     }
 
     public Long rpush(final String key, final String... string) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.rpush(key, string);
             }
-        });
+        }, false, key));
     }
 
     public Long lpush(final String key, final String... string) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.lpush(key, string);
             }
-        });
+        }, false, key));
     }
 
     public Long llen(final String key) {
@@ -398,7 +1004,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.llen(key);
             }
-        },true);
+        }, true, key);
     }
 
     public List<String> lrange(final String key, final long start, final long end) {
@@ -406,15 +1012,15 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.lrange(key, start, end);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING_LIST, "LRANGE", key, String.valueOf(start), String.valueOf(end)));
     }
 
     public String ltrim(final String key, final long start, final long end) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.ltrim(key, start, end);
             }
-        });
+        }, false, key));
     }
 
     public String lindex(final String key, final long index) {
@@ -422,47 +1028,47 @@ public abstract class AbstractRedisClient implements RedisClient{
             public String execute(JedisCommands jedis) {
                 return jedis.lindex(key, index);
             }
-        },true);
+        }, true, key);
     }
 
     public String lset(final String key, final long index, final String value) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.lset(key, index,value);
             }
-        });
+        }, false, key));
     }
 
     public Long lrem(final String key, final long count, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.lrem(key, count, value);
             }
-        });
+        }, false, key));
     }
 
     public String lpop(final String key) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.lpop(key);
             }
-        });
+        }, false, key));
     }
 
     public String rpop(final String key) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.rpop(key);
             }
-        });
+        }, false, key));
     }
 
     public Long sadd(final String key, final String... member) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.sadd(key,member);
             }
-        });
+        }, false, key));
     }
 
     public Set<String> smembers(final String key) {
@@ -470,31 +1076,31 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.smembers(key);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING_SET, "SMEMBERS", key));
     }
 
     public Long srem(final String key, final String... member) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.srem(key, member);
             }
-        });
+        }, false, key));
     }
 
     public String spop(final String key) {
-        return execute(new CallBack<String>() {
+        return afterWrite(key, execute(new CallBack<String>() {
             public String execute(JedisCommands jedis) {
                 return jedis.spop(key);
             }
-        });
+        }, false, key));
     }
 
     public Set<String> spop(final String key, final long count) {
-        return execute(new CallBack<Set<String>>() {
+        return afterWrite(key, execute(new CallBack<Set<String>>() {
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.spop(key, count);
             }
-        });
+        }, false, key));
     }
 
     public Long scard(final String key) {
@@ -502,7 +1108,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.scard(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Boolean sismember(final String key, final String member) {
@@ -510,7 +1116,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Boolean execute(JedisCommands jedis) {
                 return jedis.sismember(key, member);
             }
-        },true);
+        }, true, key);
     }
 
     public String srandmember(final String key) {
@@ -518,7 +1124,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public String execute(JedisCommands jedis) {
                 return jedis.srandmember(key);
             }
-        });
+        }, false, key);
     }
 
     public List<String> srandmember(final String key, final int count) {
@@ -526,7 +1132,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.srandmember(key,count);
             }
-        });
+        }, false, key);
     }
 
     public Long strlen(final String key) {
@@ -534,23 +1140,23 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.strlen(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zadd(final String key, final double score, final String member) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zadd(key, score, member);
             }
-        });
+        }, false, key));
     }
 
     public Long zadd(final String key, final Map<String, Double> scoreMembers) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zadd(key,scoreMembers);
             }
-        });
+        }, false, key));
     }
 
     public Set<String> zrange(final String key, final long start, final long end) {
@@ -558,23 +1164,23 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrange(key, start, end);
             }
-        },true);
+        }, true, RespCommand.of(key, BuilderFactory.STRING_ZSET, "ZRANGE", key, String.valueOf(start), String.valueOf(end)));
     }
 
     public Long zrem(final String key, final String... member) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zrem(key, member);
             }
-        });
+        }, false, key));
     }
 
     public Double zincrby(final String key, final double score, final String member) {
-        return execute(new CallBack<Double>() {
+        return afterWrite(key, execute(new CallBack<Double>() {
             public Double execute(JedisCommands jedis) {
                 return jedis.zincrby(key, score, member);
             }
-        });
+        }, false, key));
     }
 
     public Long zrank(final String key, final String member) {
@@ -582,7 +1188,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zrank(key, member);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zrevrank(final String key, final String member) {
@@ -590,7 +1196,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zrevrank(key, member);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrange(final String key, final long start, final long end) {
@@ -598,7 +1204,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrange(key, start, end);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrangeWithScores(final String key, final long start, final long end) {
@@ -606,7 +1212,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrangeWithScores(key, start, end);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrevrangeWithScores(final String key, final long start, final long end) {
@@ -614,7 +1220,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrevrangeWithScores(key, start, end);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zcard(final String key) {
@@ -622,7 +1228,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zcard(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Double zscore(final String key, final String member) {
@@ -630,7 +1236,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Double execute(JedisCommands jedis) {
                 return jedis.zscore(key, member);
             }
-        },true);
+        }, true, key);
     }
 
     public List<String> sort(final String key) {
@@ -638,7 +1244,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.sort(key);
             }
-        },true);
+        }, true, key);
     }
 
     public List<String> sort(final String key, final SortingParams sortingParameters) {
@@ -646,7 +1252,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public List<String> execute(JedisCommands jedis) {
                 return jedis.sort(key, sortingParameters);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zcount(final String key, final double min, final double max) {
@@ -654,7 +1260,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zcount(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zcount(final String key, final String min, final String max) {
@@ -662,7 +1268,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zcount(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrangeByScore(final String key, final double min, final double max) {
@@ -670,7 +1276,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByScore(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrangeByScore(final String key, final String min, final String max) {
@@ -678,7 +1284,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByScore(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
@@ -686,7 +1292,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScore(key, min, max);
             }
-        });
+        }, false, key);
     }
 
     public Set<String> zrangeByScore(final String key, final double min, final double max, final int offset, final int count) {
@@ -694,7 +1300,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByScore(key, min, max, offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByScore(final String key, final String max, final String min) {
@@ -702,7 +1308,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScore(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrangeByScore(final String key, final String min, final String max, final int offset, final int count) {
@@ -710,7 +1316,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByScore(key, min, max,offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByScore(final String key, final double max, final double min, final int offset, final int count) {
@@ -718,7 +1324,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScore(key, min, max, offset, count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrangeByScoreWithScores(final String key, final double min, final double max) {
@@ -726,7 +1332,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrangeByScoreWithScores(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrevrangeByScoreWithScores(final String key, final double max, final double min) {
@@ -734,7 +1340,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScoreWithScores(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrangeByScoreWithScores(final String key, final double min, final double max, final int offset, final int count) {
@@ -742,7 +1348,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrangeByScoreWithScores(key, min, max,offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByScore(final String key, final String max, final String min, final int offset, final int count) {
@@ -750,7 +1356,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScore(key, min, max, offset, count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrangeByScoreWithScores(final String key, final String min, final String max) {
@@ -758,7 +1364,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrangeByScoreWithScores(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrevrangeByScoreWithScores(final String key, final String max, final String min) {
@@ -766,7 +1372,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScoreWithScores(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrangeByScoreWithScores(final String key, final String min, final String max, int offset, int count) {
@@ -774,7 +1380,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrangeByScoreWithScores(key, min, max);
             }
-        });
+        }, false, key);
     }
 
     public Set<Tuple> zrevrangeByScoreWithScores(final String key, final double max, final double min, final int offset, final int count) {
@@ -782,7 +1388,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScoreWithScores(key, min, max,offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<Tuple> zrevrangeByScoreWithScores(final String key, final String max, final String min, final int offset, final int count) {
@@ -790,31 +1396,31 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<Tuple> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByScoreWithScores(key, min, max,offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zremrangeByRank(final String key, final long start, final long end) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zremrangeByRank(key, start, end);
             }
-        });
+        }, false, key));
     }
 
     public Long zremrangeByScore(final String key, final double start, final double end) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zremrangeByScore(key, start, end);
             }
-        });
+        }, false, key));
     }
 
     public Long zremrangeByScore(final String key, final String start, final String end) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zremrangeByScore(key, start, end);
             }
-        });
+        }, false, key));
     }
 
     public Long zlexcount(final String key, final String min, final String max) {
@@ -822,7 +1428,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.zlexcount(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrangeByLex(final String key, final String min, final String max) {
@@ -830,7 +1436,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByLex(key,min,max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrangeByLex(final String key, final String min, final String max, final int offset, final int count) {
@@ -838,7 +1444,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByLex(key, min, max, offset,count);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByLex(final String key, final String max, final String min) {
@@ -846,7 +1452,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrangeByLex(key, min, max);
             }
-        },true);
+        }, true, key);
     }
 
     public Set<String> zrevrangeByLex(final String key, final String max, final String min, final int offset, final int count) {
@@ -854,39 +1460,39 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Set<String> execute(JedisCommands jedis) {
                 return jedis.zrevrangeByLex(key, min, max, offset, count);
             }
-        },true);
+        }, true, key);
     }
 
     public Long zremrangeByLex(final String key, final String min, final String max) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.zremrangeByLex(key, min, max);
             }
-        });
+        }, false, key));
     }
 
     public Long linsert(final String key, final BinaryClient.LIST_POSITION where, final String pivot, final String value) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.linsert(key, where, pivot, value);
             }
-        });
+        }, false, key));
     }
 
     public Long lpushx(final String key, final String... string) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.lpushx(key, string);
             }
-        });
+        }, false, key));
     }
 
     public Long rpushx(final String key, final String... string) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.rpushx(key, string);
             }
-        });
+        }, false, key));
     }
 
     @Deprecated
@@ -925,11 +1531,11 @@ public abstract class AbstractRedisClient implements RedisClient{
     }
 
     public Long del(final String key) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.del(key);
             }
-        });
+        }, false, RespCommand.of(key, BuilderFactory.LONG, "DEL", key)));
     }
 
     public String echo(final String string) {
@@ -941,11 +1547,11 @@ public abstract class AbstractRedisClient implements RedisClient{
     }
 
     public Long move(final String key, final int dbIndex) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.move(key, dbIndex);
             }
-        });
+        }, false, key));
     }
 
     public Long bitcount(final String key) {
@@ -953,7 +1559,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.bitcount(key);
             }
-        },true);
+        }, true, key);
     }
 
     public Long bitcount(final String key, final long start, final long end) {
@@ -961,7 +1567,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.bitcount(key, start, end);
             }
-        },true);
+        }, true, key);
     }
 
     @Deprecated
@@ -970,7 +1576,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<Map.Entry<String, String>> execute(JedisCommands jedis) {
                 return jedis.hscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public ScanResult<String> sscan(final String key, final int cursor) {
@@ -978,7 +1584,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<String> execute(JedisCommands jedis) {
                 return jedis.sscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public ScanResult<Tuple> zscan(final String key, final int cursor) {
@@ -986,7 +1592,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<Tuple> execute(JedisCommands jedis) {
                 return jedis.zscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public ScanResult<Map.Entry<String, String>> hscan(final String key, final String cursor) {
@@ -994,7 +1600,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<Map.Entry<String, String>> execute(JedisCommands jedis) {
                 return jedis.hscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public ScanResult<String> sscan(final String key, final String cursor) {
@@ -1002,7 +1608,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<String> execute(JedisCommands jedis) {
                 return jedis.sscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public ScanResult<Tuple> zscan(final String key, final String cursor) {
@@ -1010,15 +1616,15 @@ public abstract class AbstractRedisClient implements RedisClient{
             public ScanResult<Tuple> execute(JedisCommands jedis) {
                 return jedis.zscan(key, cursor);
             }
-        },true);
+        }, true, key);
     }
 
     public Long pfadd(final String key, final String... elements) {
-        return execute(new CallBack<Long>() {
+        return afterWrite(key, execute(new CallBack<Long>() {
             public Long execute(JedisCommands jedis) {
                 return jedis.pfadd(key, elements);
             }
-        });
+        }, false, key));
     }
 
     public long pfcount(final String key) {
@@ -1026,7 +1632,7 @@ public abstract class AbstractRedisClient implements RedisClient{
             public Long execute(JedisCommands jedis) {
                 return jedis.pfadd(key);
             }
-        },true);
+        }, true, key);
     }
 
 
@@ -1037,13 +1643,13 @@ public abstract class AbstractRedisClient implements RedisClient{
     @Override
     public Long del(final String... keys)  {
 
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(keys, 1, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.del(keys);
             }
-        });
+        }));
     }
 
     @Override
@@ -1115,57 +1721,57 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public String mset(final String... keysvalues) {
-        return execute(new MultiKeyCallBack<String>(){
+        return afterWrite(keysvalues, 2, execute(new MultiKeyCallBack<String>(){
 
             @Override
             public String execute(MultiKeyCommands jedis) {
                 return jedis.mset(keysvalues);
             }
-        });
+        }));
     }
 
     @Override
     public Long msetnx(final String... keysvalues) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(keysvalues, 2, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.msetnx(keysvalues);
             }
-        });
+        }));
     }
 
     @Override
     public String rename(final String oldkey, final String newkey) {
-        return execute(new MultiKeyCallBack<String>(){
+        return afterWrite(new String[]{oldkey, newkey}, 1, execute(new MultiKeyCallBack<String>(){
 
             @Override
             public String execute(MultiKeyCommands jedis) {
                 return jedis.rename(oldkey,newkey);
             }
-        });
+        }));
     }
 
     @Override
     public Long renamenx(final String oldkey, final String newkey) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(new String[]{oldkey, newkey}, 1, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.renamenx(oldkey,newkey);
             }
-        });
+        }));
     }
 
     @Override
     public String rpoplpush(final String srckey, final String dstkey) {
-        return execute(new MultiKeyCallBack<String>(){
+        return afterWrite(srckey, afterWrite(dstkey, execute(new MultiKeyCallBack<String>(){
 
             @Override
             public String execute(MultiKeyCommands jedis) {
                 return jedis.rpoplpush(srckey, dstkey);
             }
-        });
+        })));
     }
 
     @Override
@@ -1181,13 +1787,13 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public Long sdiffstore(final String dstkey, final String... keys) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.sdiffstore(dstkey,keys);
             }
-        });
+        }));
     }
 
     @Override
@@ -1203,46 +1809,46 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public Long sinterstore(final String dstkey, final String... keys) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.sinterstore(dstkey, keys);
             }
-        });
+        }));
     }
 
     @Override
     public Long smove(final String srckey, final String dstkey, final String member) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(srckey, afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.smove(srckey, dstkey, member);
             }
-        });
+        })));
     }
 
     @Override
     public Long sort(final String key, final SortingParams sortingParameters, final String dstkey) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.sort(key, sortingParameters, dstkey);
             }
-        });
+        }));
     }
 
     @Override
     public Long sort(final String key, final String dstkey) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.sort(key, dstkey);
             }
-        });
+        }));
     }
 
     @Override
@@ -1258,13 +1864,13 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public Long sunionstore(final String dstkey, final String... keys) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.sunionstore(dstkey, keys);
             }
-        });
+        }));
     }
 
     @Override
@@ -1291,57 +1897,57 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public Long zinterstore(final String dstkey, final String... sets) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.zinterstore(dstkey,sets);
             }
-        });
+        }));
     }
 
     @Override
     public Long zinterstore(final String dstkey, final ZParams params, final String... sets) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.zinterstore(dstkey,params,sets);
             }
-        });
+        }));
     }
 
     @Override
     public Long zunionstore(final String dstkey, final String... sets) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.zunionstore(dstkey, sets);
             }
-        });
+        }));
     }
 
     @Override
     public Long zunionstore(final String dstkey, final ZParams params, final String... sets) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(dstkey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.zunionstore(dstkey,params, sets);
             }
-        });
+        }));
     }
 
     @Override
     public String brpoplpush(final String source, final String destination, final int timeout) {
-        return execute(new MultiKeyCallBack<String>(){
+        return afterWrite(source, afterWrite(destination, execute(new MultiKeyCallBack<String>(){
 
             @Override
             public String execute(MultiKeyCommands jedis) {
                 return jedis.brpoplpush(source, destination, timeout);
             }
-        });
+        })));
     }
 
     @Override
@@ -1392,13 +1998,13 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public Long bitop(final BitOP op, final String destKey, final String... srcKeys) {
-        return execute(new MultiKeyCallBack<Long>(){
+        return afterWrite(destKey, execute(new MultiKeyCallBack<Long>(){
 
             @Override
             public Long execute(MultiKeyCommands jedis) {
                 return jedis.bitop(op, destKey, srcKeys);
             }
-        });
+        }));
     }
 
     @Override
@@ -1425,13 +2031,13 @@ public abstract class AbstractRedisClient implements RedisClient{
 
     @Override
     public String pfmerge(final String destkey, final String... sourcekeys) {
-        return execute(new MultiKeyCallBack<String>(){
+        return afterWrite(destkey, execute(new MultiKeyCallBack<String>(){
 
             @Override
             public String execute(MultiKeyCommands jedis) {
                 return jedis.pfmerge(destkey,sourcekeys);
             }
-        });
+        }));
     }
 
     @Override
@@ -1444,4 +2050,1352 @@ public abstract class AbstractRedisClient implements RedisClient{
             }
         });
     }
+
+    /* binary Commands*/
+
+    @Override
+    public Long del(final byte[]... keys) {
+        return afterWrite(keys, 1, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.del(keys);
+            }
+        }));
+    }
+
+    @Override
+    public List<byte[]> blpop(final int timeout, final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.blpop(timeout, keys);
+            }
+        });
+    }
+
+    @Override
+    public List<byte[]> brpop(final int timeout, final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.brpop(timeout, keys);
+            }
+        });
+    }
+
+    @Override
+    public List<byte[]> blpop(final byte[]... args) {
+        return execute(new MultiKeyBinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.blpop(args);
+            }
+        });
+    }
+
+    @Override
+    public List<byte[]> brpop(final byte[]... args) {
+        return execute(new MultiKeyBinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.brpop(args);
+            }
+        });
+    }
+
+    @Override
+    public Set<byte[]> keys(final byte[] pattern) {
+        return execute(new MultiKeyBinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.keys(pattern);
+            }
+        });
+    }
+
+    @Override
+    public List<byte[]> mget(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.mget(keys);
+            }
+        });
+    }
+
+    @Override
+    public String mset(final byte[]... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new MultiKeyBinaryCallBack<String>() {
+            public String execute(MultiKeyBinaryCommands jedis) {
+                return jedis.mset(keysvalues);
+            }
+        }));
+    }
+
+    @Override
+    public Long msetnx(final byte[]... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.msetnx(keysvalues);
+            }
+        }));
+    }
+
+    @Override
+    public String rename(final byte[] oldkey, final byte[] newkey) {
+        return afterWrite(new byte[][]{oldkey, newkey}, 1, execute(new MultiKeyBinaryCallBack<String>() {
+            public String execute(MultiKeyBinaryCommands jedis) {
+                return jedis.rename(oldkey, newkey);
+            }
+        }));
+    }
+
+    @Override
+    public Long renamenx(final byte[] oldkey, final byte[] newkey) {
+        return afterWrite(new byte[][]{oldkey, newkey}, 1, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.renamenx(oldkey, newkey);
+            }
+        }));
+    }
+
+    @Override
+    public byte[] rpoplpush(final byte[] srckey, final byte[] dstkey) {
+        return afterWrite(srckey, afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<byte[]>() {
+            public byte[] execute(MultiKeyBinaryCommands jedis) {
+                return jedis.rpoplpush(srckey, dstkey);
+            }
+        })));
+    }
+
+    @Override
+    public Set<byte[]> sdiff(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sdiff(keys);
+            }
+        });
+    }
+
+    @Override
+    public Long sdiffstore(final byte[] dstkey, final byte[]... keys) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sdiffstore(dstkey, keys);
+            }
+        }));
+    }
+
+    @Override
+    public Set<byte[]> sinter(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sinter(keys);
+            }
+        });
+    }
+
+    @Override
+    public Long sinterstore(final byte[] dstkey, final byte[]... keys) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sinterstore(dstkey, keys);
+            }
+        }));
+    }
+
+    @Override
+    public Long smove(final byte[] srckey, final byte[] dstkey, final byte[] member) {
+        return afterWrite(srckey, afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.smove(srckey, dstkey, member);
+            }
+        })));
+    }
+
+    @Override
+    public Long sort(final byte[] key, final SortingParams sortingParameters, final byte[] dstkey) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sort(key, sortingParameters, dstkey);
+            }
+        }));
+    }
+
+    @Override
+    public Long sort(final byte[] key, final byte[] dstkey) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sort(key, dstkey);
+            }
+        }));
+    }
+
+    @Override
+    public Set<byte[]> sunion(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sunion(keys);
+            }
+        });
+    }
+
+    @Override
+    public Long sunionstore(final byte[] dstkey, final byte[]... keys) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.sunionstore(dstkey, keys);
+            }
+        }));
+    }
+
+    @Override
+    public String watch(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<String>() {
+            public String execute(MultiKeyBinaryCommands jedis) {
+                return jedis.watch(keys);
+            }
+        });
+    }
+
+    @Override
+    public Long zinterstore(final byte[] dstkey, final byte[]... sets) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.zinterstore(dstkey, sets);
+            }
+        }));
+    }
+
+    @Override
+    public Long zinterstore(final byte[] dstkey, final ZParams params, final byte[]... sets) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.zinterstore(dstkey, params, sets);
+            }
+        }));
+    }
+
+    @Override
+    public Long zunionstore(final byte[] dstkey, final byte[]... sets) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.zunionstore(dstkey, sets);
+            }
+        }));
+    }
+
+    @Override
+    public Long zunionstore(final byte[] dstkey, final ZParams params, final byte[]... sets) {
+        return afterWrite(dstkey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.zunionstore(dstkey, params, sets);
+            }
+        }));
+    }
+
+    @Override
+    public byte[] brpoplpush(final byte[] source, final byte[] destination, final int timeout) {
+        return afterWrite(source, afterWrite(destination, execute(new MultiKeyBinaryCallBack<byte[]>() {
+            public byte[] execute(MultiKeyBinaryCommands jedis) {
+                return jedis.brpoplpush(source, destination, timeout);
+            }
+        })));
+    }
+
+    @Override
+    public Long publish(final byte[] channel, final byte[] message) {
+        return execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.publish(channel, message);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(final BinaryJedisPubSub jedisPubSub, final byte[]... channels) {
+        execute(new MultiKeyBinaryCallBack<Integer>() {
+            public Integer execute(MultiKeyBinaryCommands jedis) {
+                jedis.subscribe(jedisPubSub, channels);
+                return 0;
+            }
+        });
+    }
+
+    @Override
+    public void psubscribe(final BinaryJedisPubSub jedisPubSub, final byte[]... patterns) {
+        execute(new MultiKeyBinaryCallBack<Integer>() {
+            public Integer execute(MultiKeyBinaryCommands jedis) {
+                jedis.psubscribe(jedisPubSub, patterns);
+                return 0;
+            }
+        });
+    }
+
+    @Override
+    public byte[] randomBinaryKey() {
+        return execute(new MultiKeyBinaryCallBack<byte[]>() {
+            public byte[] execute(MultiKeyBinaryCommands jedis) {
+                return jedis.randomBinaryKey();
+            }
+        });
+    }
+
+    @Override
+    public Long bitop(final BitOP op, final byte[] destKey, final byte[]... srcKeys) {
+        return afterWrite(destKey, execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.bitop(op, destKey, srcKeys);
+            }
+        }));
+    }
+
+    @Override
+    public String pfmerge(final byte[] destkey, final byte[]... sourcekeys) {
+        return afterWrite(destkey, execute(new MultiKeyBinaryCallBack<String>() {
+            public String execute(MultiKeyBinaryCommands jedis) {
+                return jedis.pfmerge(destkey, sourcekeys);
+            }
+        }));
+    }
+
+    @Override
+    public Long pfcount(final byte[]... keys) {
+        return execute(new MultiKeyBinaryCallBack<Long>() {
+            public Long execute(MultiKeyBinaryCommands jedis) {
+                return jedis.pfcount(keys);
+            }
+        });
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.set(key, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value, final byte[] nxxx, final byte[] expx, final long time) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.set(key, value, nxxx, expx, time);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.get(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Boolean exists(final byte[] key) {
+        return execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.exists(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long persist(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.persist(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public String type(final byte[] key) {
+        return execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.type(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long expire(final byte[] key, final int seconds) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.expire(key, seconds);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long pexpire(final byte[] key, final long milliseconds) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.pexpire(key, milliseconds);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long expireAt(final byte[] key, final long unixTime) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.expireAt(key, unixTime);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long pexpireAt(final byte[] key, final long millisecondsTimestamp) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.pexpireAt(key, millisecondsTimestamp);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long ttl(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.ttl(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Boolean setbit(final byte[] key, final long offset, final boolean value) {
+        return afterWrite(key, execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.setbit(key, offset, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Boolean setbit(final byte[] key, final long offset, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.setbit(key, offset, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Boolean getbit(final byte[] key, final long offset) {
+        return execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.getbit(key, offset);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long setrange(final byte[] key, final long offset, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.setrange(key, offset, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] getrange(final byte[] key, final long startOffset, final long endOffset) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.getrange(key, startOffset, endOffset);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public byte[] getSet(final byte[] key, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.getSet(key, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long setnx(final byte[] key, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.setnx(key, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public String setex(final byte[] key, final int seconds, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.setex(key, seconds, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long decrBy(final byte[] key, final long integer) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.decrBy(key, integer);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long decr(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.decr(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long incrBy(final byte[] key, final long integer) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.incrBy(key, integer);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Double incrByFloat(final byte[] key, final double value) {
+        return afterWrite(key, execute(new BinaryCallBack<Double>() {
+            public Double execute(BinaryJedisCommands jedis) {
+                return jedis.incrByFloat(key, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long incr(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.incr(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long append(final byte[] key, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.append(key, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] substr(final byte[] key, final int start, final int end) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.substr(key, start, end);
+            }
+        }, false, key);
+    }
+
+    @Override
+    public Long hset(final byte[] key, final byte[] field, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.hset(key, field, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] hget(final byte[] key, final byte[] field) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.hget(key, field);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long hsetnx(final byte[] key, final byte[] field, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.hsetnx(key, field, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public String hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.hmset(key, hash);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.hmget(key, fields);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long hincrBy(final byte[] key, final byte[] field, final long value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.hincrBy(key, field, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Double hincrByFloat(final byte[] key, final byte[] field, final double value) {
+        return afterWrite(key, execute(new BinaryCallBack<Double>() {
+            public Double execute(BinaryJedisCommands jedis) {
+                return jedis.hincrByFloat(key, field, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Boolean hexists(final byte[] key, final byte[] field) {
+        return execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.hexists(key, field);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long hdel(final byte[] key, final byte[]... field) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.hdel(key, field);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long hlen(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.hlen(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> hkeys(final byte[] key) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.hkeys(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Collection<byte[]> hvals(final byte[] key) {
+        return execute(new BinaryCallBack<Collection<byte[]>>() {
+            public Collection<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.hvals(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(final byte[] key) {
+        return execute(new BinaryCallBack<Map<byte[], byte[]>>() {
+            public Map<byte[], byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.hgetAll(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long rpush(final byte[] key, final byte[]... string) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.rpush(key, string);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long lpush(final byte[] key, final byte[]... string) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.lpush(key, string);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long llen(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.llen(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public List<byte[]> lrange(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.lrange(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public String ltrim(final byte[] key, final long start, final long end) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.ltrim(key, start, end);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] lindex(final byte[] key, final long index) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.lindex(key, index);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public String lset(final byte[] key, final long index, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<String>() {
+            public String execute(BinaryJedisCommands jedis) {
+                return jedis.lset(key, index, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long lrem(final byte[] key, final long count, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.lrem(key, count, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] lpop(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.lpop(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] rpop(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.rpop(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long sadd(final byte[] key, final byte[]... member) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.sadd(key, member);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Set<byte[]> smembers(final byte[] key) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.smembers(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long srem(final byte[] key, final byte[]... member) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.srem(key, member);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] spop(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.spop(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Set<byte[]> spop(final byte[] key, final long count) {
+        return afterWrite(key, execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.spop(key, count);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long scard(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.scard(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Boolean sismember(final byte[] key, final byte[] member) {
+        return execute(new BinaryCallBack<Boolean>() {
+            public Boolean execute(BinaryJedisCommands jedis) {
+                return jedis.sismember(key, member);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public byte[] srandmember(final byte[] key) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.srandmember(key);
+            }
+        }, false, key);
+    }
+
+    @Override
+    public List<byte[]> srandmember(final byte[] key, final int count) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.srandmember(key, count);
+            }
+        }, false, key);
+    }
+
+    @Override
+    public Long strlen(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.strlen(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zadd(final byte[] key, final double score, final byte[] member) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zadd(key, score, member);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long zadd(final byte[] key, final Map<byte[], Double> scoreMembers) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zadd(key, scoreMembers);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Set<byte[]> zrange(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrange(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zrem(final byte[] key, final byte[]... member) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zrem(key, member);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Double zincrby(final byte[] key, final double score, final byte[] member) {
+        return afterWrite(key, execute(new BinaryCallBack<Double>() {
+            public Double execute(BinaryJedisCommands jedis) {
+                return jedis.zincrby(key, score, member);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long zrank(final byte[] key, final byte[] member) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zrank(key, member);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zrevrank(final byte[] key, final byte[] member) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrank(key, member);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrange(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrange(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrangeWithScores(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeWithScores(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeWithScores(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeWithScores(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zcard(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zcard(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Double zscore(final byte[] key, final byte[] member) {
+        return execute(new BinaryCallBack<Double>() {
+            public Double execute(BinaryJedisCommands jedis) {
+                return jedis.zscore(key, member);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public List<byte[]> sort(final byte[] key) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.sort(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public List<byte[]> sort(final byte[] key, final SortingParams sortingParameters) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.sort(key, sortingParameters);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zcount(final byte[] key, final double min, final double max) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zcount(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zcount(final byte[] key, final byte[] min, final byte[] max) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zcount(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(final byte[] key, final double min, final double max) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScore(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(final byte[] key, final byte[] min, final byte[] max) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScore(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByScore(final byte[] key, final double max, final double min) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScore(key, max, min);
+            }
+        }, false, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(final byte[] key, final double min, final double max, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScore(key, min, max, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByScore(final byte[] key, final byte[] max, final byte[] min) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScore(key, max, min);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByScore(final byte[] key, final byte[] min, final byte[] max, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScore(key, min, max, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByScore(final byte[] key, final double max, final double min, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScore(key, max, min, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(final byte[] key, final double min, final double max) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScoreWithScores(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(final byte[] key, final double max, final double min) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScoreWithScores(key, max, min);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(final byte[] key, final double min, final double max, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByScore(final byte[] key, final byte[] max, final byte[] min, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScore(key, max, min, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(final byte[] key, final byte[] min, final byte[] max) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScoreWithScores(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(final byte[] key, final byte[] max, final byte[] min) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScoreWithScores(key, max, min);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(final byte[] key, final byte[] min, final byte[] max, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
+            }
+        }, false, key);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(final byte[] key, final double max, final double min, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScoreWithScores(key, max, min, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(final byte[] key, final byte[] max, final byte[] min, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<Tuple>>() {
+            public Set<Tuple> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByScoreWithScores(key, max, min, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zremrangeByRank(final byte[] key, final long start, final long end) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zremrangeByRank(key, start, end);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long zremrangeByScore(final byte[] key, final double start, final double end) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zremrangeByScore(key, start, end);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long zremrangeByScore(final byte[] key, final byte[] start, final byte[] end) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zremrangeByScore(key, start, end);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long zlexcount(final byte[] key, final byte[] min, final byte[] max) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zlexcount(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByLex(final byte[] key, final byte[] min, final byte[] max) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByLex(key, min, max);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrangeByLex(final byte[] key, final byte[] min, final byte[] max, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrangeByLex(key, min, max, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByLex(final byte[] key, final byte[] max, final byte[] min) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByLex(key, max, min);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Set<byte[]> zrevrangeByLex(final byte[] key, final byte[] max, final byte[] min, final int offset, final int count) {
+        return execute(new BinaryCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.zrevrangeByLex(key, max, min, offset, count);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long zremrangeByLex(final byte[] key, final byte[] min, final byte[] max) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.zremrangeByLex(key, min, max);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long linsert(final byte[] key, final BinaryClient.LIST_POSITION where, final byte[] pivot, final byte[] value) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.linsert(key, where, pivot, value);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long lpushx(final byte[] key, final byte[]... string) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.lpushx(key, string);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long rpushx(final byte[] key, final byte[]... string) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.rpushx(key, string);
+            }
+        }, false, key));
+    }
+
+    @Deprecated
+    @Override
+    public List<byte[]> blpop(final byte[] arg) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.blpop(arg);
+            }
+        });
+    }
+
+    @Deprecated
+    @Override
+    public List<byte[]> brpop(final byte[] arg) {
+        return execute(new BinaryCallBack<List<byte[]>>() {
+            public List<byte[]> execute(BinaryJedisCommands jedis) {
+                return jedis.brpop(arg);
+            }
+        });
+    }
+
+    @Override
+    public Long del(final byte[] key) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.del(key);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public byte[] echo(final byte[] string) {
+        return execute(new BinaryCallBack<byte[]>() {
+            public byte[] execute(BinaryJedisCommands jedis) {
+                return jedis.echo(string);
+            }
+        }, true);
+    }
+
+    @Override
+    public Long move(final byte[] key, final int dbIndex) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.move(key, dbIndex);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public Long bitcount(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.bitcount(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long bitcount(final byte[] key, final long start, final long end) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.bitcount(key, start, end);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public Long pfadd(final byte[] key, final byte[]... elements) {
+        return afterWrite(key, execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.pfadd(key, elements);
+            }
+        }, false, key));
+    }
+
+    @Override
+    public long pfcount(final byte[] key) {
+        return execute(new BinaryCallBack<Long>() {
+            public Long execute(BinaryJedisCommands jedis) {
+                return jedis.pfcount(key);
+            }
+        }, true, key);
+    }
+
+    @Override
+    public String set(final byte[] key, final ByteBuffer value) {
+        return set(key, toBytes(value));
+    }
+
+    @Override
+    public String setex(final byte[] key, final int seconds, final ByteBuffer value) {
+        return setex(key, seconds, toBytes(value));
+    }
+
+    @Override
+    public Long hset(final byte[] key, final byte[] field, final ByteBuffer value) {
+        return hset(key, field, toBytes(value));
+    }
+
+    /**
+     * buffer剩余部分恰好是整个backing array时直接使用，否则只复制剩余部分一次
+     */
+    private static byte[] toBytes(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
 }
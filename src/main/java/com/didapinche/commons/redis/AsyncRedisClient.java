@@ -0,0 +1,324 @@
+package com.didapinche.commons.redis;
+
+import redis.clients.jedis.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * RedisClient 的异步版本，所有命令立即返回Future
+ * <p/>
+ * 不提供jedis已废弃的重载（单参数blpop/brpop、int游标的scan），请使用带timeout或String游标的版本
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public interface AsyncRedisClient {
+
+    Future<String> set(String key, String value);
+
+    Future<String> set(String key, String value, String nxxx, String expx, long time);
+
+    Future<String> get(String key);
+
+    Future<Boolean> exists(String key);
+
+    Future<Long> persist(String key);
+
+    Future<String> type(String key);
+
+    Future<Long> expire(String key, int seconds);
+
+    Future<Long> pexpire(String key, long milliseconds);
+
+    Future<Long> expireAt(String key, long unixTime);
+
+    Future<Long> pexpireAt(String key, long millisecondsTimestamp);
+
+    Future<Long> ttl(String key);
+
+    Future<Boolean> setbit(String key, long offset, boolean value);
+
+    Future<Boolean> setbit(String key, long offset, String value);
+
+    Future<Boolean> getbit(String key, long offset);
+
+    Future<Long> setrange(String key, long offset, String value);
+
+    Future<String> getrange(String key, long startOffset, long endOffset);
+
+    Future<String> getSet(String key, String value);
+
+    Future<Long> setnx(String key, String value);
+
+    Future<String> setex(String key, int seconds, String value);
+
+    Future<Long> decrBy(String key, long integer);
+
+    Future<Long> decr(String key);
+
+    Future<Long> incrBy(String key, long integer);
+
+    Future<Double> incrByFloat(String key, double value);
+
+    Future<Long> incr(String key);
+
+    Future<Long> append(String key, String value);
+
+    Future<String> substr(String key, int start, int end);
+
+    Future<Long> hset(String key, String field, String value);
+
+    Future<String> hget(String key, String field);
+
+    Future<Long> hsetnx(String key, String field, String value);
+
+    Future<String> hmset(String key, Map<String, String> hash);
+
+    Future<List<String>> hmget(String key, String... fields);
+
+    Future<Long> hincrBy(String key, String field, long value);
+
+    Future<Double> hincrByFloat(String key, String field, double value);
+
+    Future<Boolean> hexists(String key, String field);
+
+    Future<Long> hdel(String key, String... field);
+
+    Future<Long> hlen(String key);
+
+    Future<Set<String>> hkeys(String key);
+
+    Future<List<String>> hvals(String key);
+
+    Future<Map<String, String>> hgetAll(String key);
+
+    Future<Long> rpush(String key, String... string);
+
+    Future<Long> lpush(String key, String... string);
+
+    Future<Long> llen(String key);
+
+    Future<List<String>> lrange(String key, long start, long end);
+
+    Future<String> ltrim(String key, long start, long end);
+
+    Future<String> lindex(String key, long index);
+
+    Future<String> lset(String key, long index, String value);
+
+    Future<Long> lrem(String key, long count, String value);
+
+    Future<String> lpop(String key);
+
+    Future<String> rpop(String key);
+
+    Future<Long> sadd(String key, String... member);
+
+    Future<Set<String>> smembers(String key);
+
+    Future<Long> srem(String key, String... member);
+
+    Future<String> spop(String key);
+
+    Future<Set<String>> spop(String key, long count);
+
+    Future<Long> scard(String key);
+
+    Future<Boolean> sismember(String key, String member);
+
+    Future<String> srandmember(String key);
+
+    Future<List<String>> srandmember(String key, int count);
+
+    Future<Long> strlen(String key);
+
+    Future<Long> zadd(String key, double score, String member);
+
+    Future<Long> zadd(String key, Map<String, Double> scoreMembers);
+
+    Future<Set<String>> zrange(String key, long start, long end);
+
+    Future<Long> zrem(String key, String... member);
+
+    Future<Double> zincrby(String key, double score, String member);
+
+    Future<Long> zrank(String key, String member);
+
+    Future<Long> zrevrank(String key, String member);
+
+    Future<Set<String>> zrevrange(String key, long start, long end);
+
+    Future<Set<Tuple>> zrangeWithScores(String key, long start, long end);
+
+    Future<Set<Tuple>> zrevrangeWithScores(String key, long start, long end);
+
+    Future<Long> zcard(String key);
+
+    Future<Double> zscore(String key, String member);
+
+    Future<List<String>> sort(String key);
+
+    Future<List<String>> sort(String key, SortingParams sortingParameters);
+
+    Future<Long> zcount(String key, double min, double max);
+
+    Future<Long> zcount(String key, String min, String max);
+
+    Future<Set<String>> zrangeByScore(String key, double min, double max);
+
+    Future<Set<String>> zrangeByScore(String key, String min, String max);
+
+    Future<Set<String>> zrevrangeByScore(String key, double max, double min);
+
+    Future<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count);
+
+    Future<Set<String>> zrevrangeByScore(String key, String max, String min);
+
+    Future<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count);
+
+    Future<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count);
+
+    Future<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max);
+
+    Future<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min);
+
+    Future<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count);
+
+    Future<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count);
+
+    Future<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max);
+
+    Future<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min);
+
+    Future<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count);
+
+    Future<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count);
+
+    Future<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count);
+
+    Future<Long> zremrangeByRank(String key, long start, long end);
+
+    Future<Long> zremrangeByScore(String key, double start, double end);
+
+    Future<Long> zremrangeByScore(String key, String start, String end);
+
+    Future<Long> zlexcount(String key, String min, String max);
+
+    Future<Set<String>> zrangeByLex(String key, String min, String max);
+
+    Future<Set<String>> zrangeByLex(String key, String min, String max, int offset, int count);
+
+    Future<Set<String>> zrevrangeByLex(String key, String max, String min);
+
+    Future<Set<String>> zrevrangeByLex(String key, String max, String min, int offset, int count);
+
+    Future<Long> zremrangeByLex(String key, String min, String max);
+
+    Future<Long> linsert(String key, BinaryClient.LIST_POSITION where, String pivot, String value);
+
+    Future<Long> lpushx(String key, String... string);
+
+    Future<Long> rpushx(String key, String... string);
+
+    Future<List<String>> blpop(int timeout, String key);
+
+    Future<List<String>> brpop(int timeout, String key);
+
+    Future<Long> del(String key);
+
+    Future<String> echo(String string);
+
+    Future<Long> move(String key, int dbIndex);
+
+    Future<Long> bitcount(String key);
+
+    Future<Long> bitcount(String key, long start, long end);
+
+    Future<ScanResult<Map.Entry<String, String>>> hscan(String key, String cursor);
+
+    Future<ScanResult<String>> sscan(String key, String cursor);
+
+    Future<ScanResult<Tuple>> zscan(String key, String cursor);
+
+    Future<Long> pfadd(String key, String... elements);
+
+    Future<Long> pfcount(String key);
+
+    /* multi key Commands*/
+
+    Future<Long> del(String... keys);
+
+    Future<List<String>> blpop(int timeout, String... keys);
+
+    Future<List<String>> brpop(int timeout, String... keys);
+
+    Future<List<String>> blpop(String... args);
+
+    Future<List<String>> brpop(String... args);
+
+    Future<Set<String>> keys(String pattern);
+
+    Future<List<String>> mget(String... keys);
+
+    Future<String> mset(String... keysvalues);
+
+    Future<Long> msetnx(String... keysvalues);
+
+    Future<String> rename(String oldkey, String newkey);
+
+    Future<Long> renamenx(String oldkey, String newkey);
+
+    Future<String> rpoplpush(String srckey, String dstkey);
+
+    Future<Set<String>> sdiff(String... keys);
+
+    Future<Long> sdiffstore(String dstkey, String... keys);
+
+    Future<Set<String>> sinter(String... keys);
+
+    Future<Long> sinterstore(String dstkey, String... keys);
+
+    Future<Long> smove(String srckey, String dstkey, String member);
+
+    Future<Long> sort(String key, SortingParams sortingParameters, String dstkey);
+
+    Future<Long> sort(String key, String dstkey);
+
+    Future<Set<String>> sunion(String... keys);
+
+    Future<Long> sunionstore(String dstkey, String... keys);
+
+    Future<String> watch(String... keys);
+
+    Future<String> unwatch();
+
+    Future<Long> zinterstore(String dstkey, String... sets);
+
+    Future<Long> zinterstore(String dstkey, ZParams params, String... sets);
+
+    Future<Long> zunionstore(String dstkey, String... sets);
+
+    Future<Long> zunionstore(String dstkey, ZParams params, String... sets);
+
+    Future<String> brpoplpush(String source, String destination, int timeout);
+
+    Future<Long> publish(String channel, String message);
+
+    Future<Void> subscribe(JedisPubSub jedisPubSub, String... channels);
+
+    Future<Void> psubscribe(JedisPubSub jedisPubSub, String... patterns);
+
+    Future<String> randomKey();
+
+    Future<Long> bitop(BitOP op, String destKey, String... srcKeys);
+
+    Future<ScanResult<String>> scan(String cursor);
+
+    Future<String> pfmerge(String destkey, String... sourcekeys);
+
+    Future<Long> pfcount(String... keys);
+}
@@ -0,0 +1,54 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 批量命令中单条命令的返回结果，{@link RedisBatch#execute()} 之后才可读取
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class BatchResponse<T> {
+
+    private T response;
+
+    private JedisDataException exception;
+
+    private boolean set = false;
+
+    void set(T response) {
+        this.response = response;
+        this.exception = null;
+        this.set = true;
+    }
+
+    void setException(JedisDataException exception) {
+        this.response = null;
+        this.exception = exception;
+        this.set = true;
+    }
+
+    /**
+     * 获取命令结果，命令本身执行失败时抛出对应的 JedisDataException
+     */
+    public T get() {
+        if (!set) {
+            throw new RedisClientException("please execute the batch before getting the response");
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return response;
+    }
+
+    public boolean isDone() {
+        return set;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResponse{" + (set ? (exception != null ? exception.getMessage() : String.valueOf(response)) : "not executed") + "}";
+    }
+}
@@ -0,0 +1,32 @@
+package com.didapinche.commons.redis;
+
+import redis.clients.jedis.BinaryJedisCommands;
+import redis.clients.jedis.MultiKeyBinaryCommands;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * 二进制命令接口，key和value直接以byte[]读写，省去String编解码
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public interface BinaryRedisClient extends BinaryJedisCommands, MultiKeyBinaryCommands {
+
+    /**
+     * 写入value的剩余部分，不改变value的position
+     */
+    String set(byte[] key, ByteBuffer value);
+
+    /**
+     * 写入value的剩余部分，不改变value的position
+     */
+    String setex(byte[] key, int seconds, ByteBuffer value);
+
+    /**
+     * 写入value的剩余部分，不改变value的position
+     */
+    Long hset(byte[] key, byte[] field, ByteBuffer value);
+}
@@ -0,0 +1,1526 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import redis.clients.jedis.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于同步RedisClient的异步客户端
+ * <p/>
+ * 命令交给固定大小的线程池执行，仍然经过MasterSlaveRedisClient/MatrixRedisClient的路由和读写分离。
+ * 同时在途的命令数不超过maxInFlight，超过时提交线程等待acquireTimeoutMillis，仍拿不到许可则抛出RedisClientException（背压）
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class DefaultAsyncRedisClient implements AsyncRedisClient, InitializingBean, DisposableBean {
+
+    /**
+     * 实际执行命令的同步客户端
+     */
+    private RedisClient client;
+
+    /**
+     * 执行线程数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * 最大在途命令数
+     */
+    private int maxInFlight = 1024;
+
+    /**
+     * 在途命令已满时提交线程的最长等待时间 ms
+     */
+    private long acquireTimeoutMillis = 1000;
+
+    private Semaphore inFlight;
+
+    private ExecutorService executor;
+
+    public DefaultAsyncRedisClient() {
+    }
+
+    public DefaultAsyncRedisClient(RedisClient client) {
+        this.client = client;
+        init();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        init();
+    }
+
+    private synchronized void init() {
+        if (executor != null) {
+            return;
+        }
+        inFlight = new Semaphore(maxInFlight);
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("async-redis-client"));
+    }
+
+    @Override
+    public void destroy() {
+        shutdown();
+    }
+
+    /**
+     * 不再接受新命令，已提交的命令继续执行完
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 拿到在途许可后提交命令，命令结束时归还许可
+     */
+    protected <T> Future<T> submit(final Callable<T> callable) {
+        try {
+            if (!inFlight.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RedisClientException("too many in-flight redis commands, max in-flight: " + maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisClientException("interrupted while waiting for in-flight permit");
+        }
+
+        try {
+            return executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    try {
+                        return callable.call();
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new RedisClientException("async redis client has been shut down");
+        }
+    }
+
+    /**
+     * 当前在途命令数
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public RedisClient getClient() {
+        return client;
+    }
+
+    public void setClient(RedisClient client) {
+        this.client = client;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /* multi jedis Commands*/
+
+    @Override
+    public Future<String> set(final String key, final String value) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> set(final String key, final String value, final String nxxx, final String expx, final long time) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.set(key, value, nxxx, expx, time);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> get(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.get(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> exists(final String key) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.exists(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> persist(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.persist(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> type(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.type(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> expire(final String key, final int seconds) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.expire(key, seconds);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> pexpire(final String key, final long milliseconds) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.pexpire(key, milliseconds);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> expireAt(final String key, final long unixTime) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.expireAt(key, unixTime);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> pexpireAt(final String key, final long millisecondsTimestamp) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.pexpireAt(key, millisecondsTimestamp);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> ttl(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.ttl(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> setbit(final String key, final long offset, final boolean value) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.setbit(key, offset, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> setbit(final String key, final long offset, final String value) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.setbit(key, offset, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> getbit(final String key, final long offset) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.getbit(key, offset);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> setrange(final String key, final long offset, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.setrange(key, offset, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> getrange(final String key, final long startOffset, final long endOffset) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.getrange(key, startOffset, endOffset);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> getSet(final String key, final String value) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.getSet(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> setnx(final String key, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.setnx(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> setex(final String key, final int seconds, final String value) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.setex(key, seconds, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> decrBy(final String key, final long integer) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.decrBy(key, integer);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> decr(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.decr(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> incrBy(final String key, final long integer) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.incrBy(key, integer);
+            }
+        });
+    }
+
+    @Override
+    public Future<Double> incrByFloat(final String key, final double value) {
+        return submit(new Callable<Double>() {
+            public Double call() {
+                return client.incrByFloat(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> incr(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.incr(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> append(final String key, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.append(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> substr(final String key, final int start, final int end) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.substr(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> hset(final String key, final String field, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.hset(key, field, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> hget(final String key, final String field) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.hget(key, field);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> hsetnx(final String key, final String field, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.hsetnx(key, field, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> hmset(final String key, final Map<String, String> hash) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.hmset(key, hash);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> hmget(final String key, final String... fields) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.hmget(key, fields);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> hincrBy(final String key, final String field, final long value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.hincrBy(key, field, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Double> hincrByFloat(final String key, final String field, final double value) {
+        return submit(new Callable<Double>() {
+            public Double call() {
+                return client.hincrByFloat(key, field, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> hexists(final String key, final String field) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.hexists(key, field);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> hdel(final String key, final String... field) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.hdel(key, field);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> hlen(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.hlen(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> hkeys(final String key) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.hkeys(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> hvals(final String key) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.hvals(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Map<String, String>> hgetAll(final String key) {
+        return submit(new Callable<Map<String, String>>() {
+            public Map<String, String> call() {
+                return client.hgetAll(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> rpush(final String key, final String... string) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.rpush(key, string);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> lpush(final String key, final String... string) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.lpush(key, string);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> llen(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.llen(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> lrange(final String key, final long start, final long end) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.lrange(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> ltrim(final String key, final long start, final long end) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.ltrim(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> lindex(final String key, final long index) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.lindex(key, index);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> lset(final String key, final long index, final String value) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.lset(key, index, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> lrem(final String key, final long count, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.lrem(key, count, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> lpop(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.lpop(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> rpop(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.rpop(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sadd(final String key, final String... member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sadd(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> smembers(final String key) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.smembers(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> srem(final String key, final String... member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.srem(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> spop(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.spop(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> spop(final String key, final long count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.spop(key, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> scard(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.scard(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> sismember(final String key, final String member) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return client.sismember(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> srandmember(final String key) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.srandmember(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> srandmember(final String key, final int count) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.srandmember(key, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> strlen(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.strlen(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zadd(final String key, final double score, final String member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zadd(key, score, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zadd(final String key, final Map<String, Double> scoreMembers) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zadd(key, scoreMembers);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrange(final String key, final long start, final long end) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrange(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zrem(final String key, final String... member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zrem(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Double> zincrby(final String key, final double score, final String member) {
+        return submit(new Callable<Double>() {
+            public Double call() {
+                return client.zincrby(key, score, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zrank(final String key, final String member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zrank(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zrevrank(final String key, final String member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zrevrank(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrange(final String key, final long start, final long end) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrange(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrangeWithScores(final String key, final long start, final long end) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrangeWithScores(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrevrangeWithScores(final String key, final long start, final long end) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrevrangeWithScores(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zcard(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zcard(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Double> zscore(final String key, final String member) {
+        return submit(new Callable<Double>() {
+            public Double call() {
+                return client.zscore(key, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> sort(final String key) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.sort(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> sort(final String key, final SortingParams sortingParameters) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.sort(key, sortingParameters);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zcount(final String key, final double min, final double max) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zcount(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zcount(final String key, final String min, final String max) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zcount(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByScore(final String key, final double min, final double max) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByScore(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByScore(final String key, final String min, final String max) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByScore(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByScore(final String key, final double max, final double min) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByScore(key, max, min);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByScore(final String key, final double min, final double max, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByScore(key, min, max, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByScore(final String key, final String max, final String min) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByScore(key, max, min);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByScore(final String key, final String min, final String max, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByScore(key, min, max, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByScore(final String key, final double max, final double min, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByScore(key, max, min, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrangeByScoreWithScores(final String key, final double min, final double max) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrangeByScoreWithScores(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrevrangeByScoreWithScores(final String key, final double max, final double min) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrevrangeByScoreWithScores(key, max, min);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrangeByScoreWithScores(final String key, final double min, final double max, final int offset, final int count) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrangeByScoreWithScores(key, min, max, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByScore(final String key, final String max, final String min, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByScore(key, max, min, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrangeByScoreWithScores(final String key, final String min, final String max) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrangeByScoreWithScores(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrevrangeByScoreWithScores(final String key, final String max, final String min) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrevrangeByScoreWithScores(key, max, min);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrangeByScoreWithScores(final String key, final String min, final String max, final int offset, final int count) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrangeByScoreWithScores(key, min, max, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrevrangeByScoreWithScores(final String key, final double max, final double min, final int offset, final int count) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrevrangeByScoreWithScores(key, max, min, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<Tuple>> zrevrangeByScoreWithScores(final String key, final String max, final String min, final int offset, final int count) {
+        return submit(new Callable<Set<Tuple>>() {
+            public Set<Tuple> call() {
+                return client.zrevrangeByScoreWithScores(key, max, min, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zremrangeByRank(final String key, final long start, final long end) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zremrangeByRank(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zremrangeByScore(final String key, final double start, final double end) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zremrangeByScore(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zremrangeByScore(final String key, final String start, final String end) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zremrangeByScore(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zlexcount(final String key, final String min, final String max) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zlexcount(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByLex(final String key, final String min, final String max) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByLex(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrangeByLex(final String key, final String min, final String max, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrangeByLex(key, min, max, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByLex(final String key, final String max, final String min) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByLex(key, max, min);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> zrevrangeByLex(final String key, final String max, final String min, final int offset, final int count) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.zrevrangeByLex(key, max, min, offset, count);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zremrangeByLex(final String key, final String min, final String max) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zremrangeByLex(key, min, max);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> linsert(final String key, final BinaryClient.LIST_POSITION where, final String pivot, final String value) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.linsert(key, where, pivot, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> lpushx(final String key, final String... string) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.lpushx(key, string);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> rpushx(final String key, final String... string) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.rpushx(key, string);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> blpop(final int timeout, final String key) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.blpop(timeout, key);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> brpop(final int timeout, final String key) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.brpop(timeout, key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> del(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.del(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> echo(final String string) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.echo(string);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> move(final String key, final int dbIndex) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.move(key, dbIndex);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> bitcount(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.bitcount(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> bitcount(final String key, final long start, final long end) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.bitcount(key, start, end);
+            }
+        });
+    }
+
+    @Override
+    public Future<ScanResult<Map.Entry<String, String>>> hscan(final String key, final String cursor) {
+        return submit(new Callable<ScanResult<Map.Entry<String, String>>>() {
+            public ScanResult<Map.Entry<String, String>> call() {
+                return client.hscan(key, cursor);
+            }
+        });
+    }
+
+    @Override
+    public Future<ScanResult<String>> sscan(final String key, final String cursor) {
+        return submit(new Callable<ScanResult<String>>() {
+            public ScanResult<String> call() {
+                return client.sscan(key, cursor);
+            }
+        });
+    }
+
+    @Override
+    public Future<ScanResult<Tuple>> zscan(final String key, final String cursor) {
+        return submit(new Callable<ScanResult<Tuple>>() {
+            public ScanResult<Tuple> call() {
+                return client.zscan(key, cursor);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> pfadd(final String key, final String... elements) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.pfadd(key, elements);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> pfcount(final String key) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.pfcount(key);
+            }
+        });
+    }
+
+    /* multi key Commands*/
+
+    @Override
+    public Future<Long> del(final String... keys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.del(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> blpop(final int timeout, final String... keys) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.blpop(timeout, keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> brpop(final int timeout, final String... keys) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.brpop(timeout, keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> blpop(final String... args) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.blpop(args);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> brpop(final String... args) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.brpop(args);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> keys(final String pattern) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.keys(pattern);
+            }
+        });
+    }
+
+    @Override
+    public Future<List<String>> mget(final String... keys) {
+        return submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return client.mget(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> mset(final String... keysvalues) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.mset(keysvalues);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> msetnx(final String... keysvalues) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.msetnx(keysvalues);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> rename(final String oldkey, final String newkey) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.rename(oldkey, newkey);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> renamenx(final String oldkey, final String newkey) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.renamenx(oldkey, newkey);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> rpoplpush(final String srckey, final String dstkey) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.rpoplpush(srckey, dstkey);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> sdiff(final String... keys) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.sdiff(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sdiffstore(final String dstkey, final String... keys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sdiffstore(dstkey, keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> sinter(final String... keys) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.sinter(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sinterstore(final String dstkey, final String... keys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sinterstore(dstkey, keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> smove(final String srckey, final String dstkey, final String member) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.smove(srckey, dstkey, member);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sort(final String key, final SortingParams sortingParameters, final String dstkey) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sort(key, sortingParameters, dstkey);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sort(final String key, final String dstkey) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sort(key, dstkey);
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<String>> sunion(final String... keys) {
+        return submit(new Callable<Set<String>>() {
+            public Set<String> call() {
+                return client.sunion(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> sunionstore(final String dstkey, final String... keys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.sunionstore(dstkey, keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> watch(final String... keys) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.watch(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> unwatch() {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.unwatch();
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zinterstore(final String dstkey, final String... sets) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zinterstore(dstkey, sets);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zinterstore(final String dstkey, final ZParams params, final String... sets) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zinterstore(dstkey, params, sets);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zunionstore(final String dstkey, final String... sets) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zunionstore(dstkey, sets);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> zunionstore(final String dstkey, final ZParams params, final String... sets) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.zunionstore(dstkey, params, sets);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> brpoplpush(final String source, final String destination, final int timeout) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.brpoplpush(source, destination, timeout);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> publish(final String channel, final String message) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.publish(channel, message);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> subscribe(final JedisPubSub jedisPubSub, final String... channels) {
+        return submit(new Callable<Void>() {
+            public Void call() {
+                client.subscribe(jedisPubSub, channels);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> psubscribe(final JedisPubSub jedisPubSub, final String... patterns) {
+        return submit(new Callable<Void>() {
+            public Void call() {
+                client.psubscribe(jedisPubSub, patterns);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public Future<String> randomKey() {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.randomKey();
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> bitop(final BitOP op, final String destKey, final String... srcKeys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.bitop(op, destKey, srcKeys);
+            }
+        });
+    }
+
+    @Override
+    public Future<ScanResult<String>> scan(final String cursor) {
+        return submit(new Callable<ScanResult<String>>() {
+            public ScanResult<String> call() {
+                return client.scan(cursor);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> pfmerge(final String destkey, final String... sourcekeys) {
+        return submit(new Callable<String>() {
+            public String call() {
+                return client.pfmerge(destkey, sourcekeys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> pfcount(final String... keys) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                return client.pfcount(keys);
+            }
+        });
+    }
+}
@@ -1,12 +1,22 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.nio.RespCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 
 /**
  * MuiltRedisClient.java
@@ -24,6 +34,11 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
 
     private MasterSlaveRedisPool pool;
 
+    /**
+     * 对冲读，默认关闭
+     */
+    private volatile ReadHedger readHedger;
+
     protected <T> T execute(CallBack<T> callBack, boolean readonly, int retryTimes) {
 
         retryTimes++;
@@ -34,12 +49,24 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
             throw new RedisClientException("have retried 3 times for redis command");
         }
 
-        if (readonly && autoReadFromSlave && pool.hasSlave()) {
+        if (readonly && autoReadFromSlave) {
             Jedis jedis = null;
+            SlaveBalancer balancer = pool.getSlaveBalancer();
+            HostAndPort slave = null;
+            long start = 0;
+            boolean success = false;
 
             try {
-                jedis = pool.getSlaveResource();
-                return callBack.execute(jedis);
+                //选slave和取连接用同一个拓扑快照，没有slave时走master
+                jedis = pool.getSlaveResourceIfPresent();
+                if (jedis != null) {
+                    slave = new HostAndPort(jedis.getClient().getHost(), jedis.getClient().getPort());
+                    balancer.onStart(slave);
+                    start = System.nanoTime();
+                    T result = callBack.execute(jedis);
+                    success = true;
+                    return result;
+                }
             } catch (JedisConnectionException e) {
                 logger.error(e.getMessage());
                 if (jedis != null) {
@@ -50,9 +77,14 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
                 }
                 return execute(callBack, readonly, retryTimes);
             } catch (Exception e) {
+                //命令错误不是节点故障，按正常响应计入耗时
+                success = true;
                 logger.error(e.getMessage(), e);
                 return execute(callBack, readonly, retryTimes);
             } finally {
+                if (start != 0) {
+                    balancer.onComplete(slave, System.nanoTime() - start, success);
+                }
                 if (jedis != null) {
                     try {
                         pool.returnSlaveResourceObject(jedis);
@@ -61,22 +93,20 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
                     }
                 }
             }
+        }
 
-        } else {
+        Jedis jedis = null;
 
-            Jedis jedis = null;
-
-            try {
-                jedis = pool.getMasterResource();
-                T result = callBack.execute(jedis);
-                return result;
-            } catch (Exception e) {
-                logger.error(e.getMessage(), e);
-                return execute(callBack, readonly, retryTimes);
-            } finally {
-                if (jedis != null) {
-                    pool.returnMasterResourceObject(jedis);
-                }
+        try {
+            jedis = pool.getMasterResource();
+            T result = callBack.execute(jedis);
+            return result;
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return execute(callBack, readonly, retryTimes);
+        } finally {
+            if (jedis != null) {
+                pool.returnMasterResourceObject(jedis);
             }
         }
     }
@@ -92,12 +122,24 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
             throw new RedisClientException("have retried 3 times for redis command");
         }
 
-        if (readonly && autoReadFromSlave && pool.hasSlave()) {
+        if (readonly && autoReadFromSlave) {
             Jedis jedis = null;
+            SlaveBalancer balancer = pool.getSlaveBalancer();
+            HostAndPort slave = null;
+            long start = 0;
+            boolean success = false;
 
             try {
-                jedis = pool.getSlaveResource();
-                return callBack.execute(jedis);
+                //选slave和取连接用同一个拓扑快照，没有slave时走master
+                jedis = pool.getSlaveResourceIfPresent();
+                if (jedis != null) {
+                    slave = new HostAndPort(jedis.getClient().getHost(), jedis.getClient().getPort());
+                    balancer.onStart(slave);
+                    start = System.nanoTime();
+                    T result = callBack.execute(jedis);
+                    success = true;
+                    return result;
+                }
             } catch (JedisConnectionException e) {
                 logger.error(e.getMessage());
                 if (jedis != null) {
@@ -108,9 +150,14 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
                 }
                 return execute(callBack, readonly, retryTimes);
             } catch (Exception e) {
+                //命令错误不是节点故障，按正常响应计入耗时
+                success = true;
                 logger.error(e.getMessage(), e);
                 return execute(callBack, readonly, retryTimes);
             } finally {
+                if (start != 0) {
+                    balancer.onComplete(slave, System.nanoTime() - start, success);
+                }
                 if (jedis != null) {
                     try {
                         pool.returnSlaveResourceObject(jedis);
@@ -119,26 +166,230 @@ public final class MasterSlaveRedisClient extends AbstractRedisClient {
                     }
                 }
             }
+        }
+
+        Jedis jedis = null;
+
+        try {
+            jedis = pool.getMasterResource();
+            T result = callBack.execute(jedis);
+            return result;
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return execute(callBack, readonly, retryTimes);
+        } finally {
+            if (jedis != null) {
+                pool.returnMasterResourceObject(jedis);
+            }
+        }
+    }
+
+
+    @Override
+    protected <T> T executeCommand(CallBack<T> callBack, boolean readonly, RespCommand<T> command) {
+        ReadHedger hedger = readHedger;
+        if (hedger != null && readonly && autoReadFromSlave && getTransport() == null
+                && hedger.isHedged(command.getCommand())) {
+            if (!hedger.isReady(command.getCommand())) {
+                //样本不足还不能对冲，照常执行并积累耗时
+                long start = System.nanoTime();
+                T result = super.executeCommand(callBack, readonly, command);
+                hedger.record(command.getCommand(), System.nanoTime() - start);
+                return result;
+            }
+            HostAndPort slave = pool.selectSlave();
+            if (slave == null) {
+                return super.executeCommand(callBack, readonly, command);
+            }
+            AtomicBoolean backupStarted = new AtomicBoolean(false);
+            try {
+                return hedger.execute(command.getCommand(), attempt(callBack, slave, null),
+                        attempt(callBack, backupOf(slave), backupStarted));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisClientException("interrupted while waiting for hedged read");
+            } catch (Exception e) {
+                if (!backupStarted.get()) {
+                    //只在primary上执行过，按常规路径重试
+                    logger.warn("hedged read on " + slave + " failed, retry: " + e.getMessage());
+                    return super.executeCommand(callBack, readonly, command);
+                }
+                //两个节点都已失败，不再重复常规的重试
+                logger.warn("hedged read failed: " + e.getMessage());
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new RedisClientException("hedged read failed: " + e.getMessage());
+            }
+        }
+        return super.executeCommand(callBack, readonly, command);
+    }
+
+    /**
+     * 对冲请求的节点：另一个slave，没有时用master（返回null）
+     */
+    private HostAndPort backupOf(HostAndPort slave) {
+        List<HostAndPort> others = new ArrayList<>(pool.getSlaveHaps());
+        others.remove(slave);
+        if (others.isEmpty()) {
+            return null;
+        }
+        return pool.getSlaveBalancer().select(others, pool.getNodeWeights());
+    }
+
+    /**
+     * 在指定节点上执行一次，node为null时在master上执行；started不为null时开始执行前置为true
+     * <p/>
+     * slave的连接在使用中断开时与常规路径一样下线该slave
+     */
+    private <T> Callable<T> attempt(final CallBack<T> callBack, final HostAndPort node, final AtomicBoolean started) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (started != null) {
+                    started.set(true);
+                }
+                if (node == null) {
+                    Jedis jedis = pool.getMasterResource();
+                    try {
+                        return callBack.execute(jedis);
+                    } finally {
+                        pool.returnMasterResourceObject(jedis);
+                    }
+                }
+
+                SlaveBalancer balancer = pool.getSlaveBalancer();
+                Jedis jedis = pool.getSlaveResource(node);
+                balancer.onStart(node);
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    T result = callBack.execute(jedis);
+                    success = true;
+                    return result;
+                } catch (JedisConnectionException e) {
+                    //从机实际下线
+                    pool.sdownSlave(null, node);
+                    throw e;
+                } catch (RuntimeException e) {
+                    //命令错误不是节点故障，按正常响应计入耗时
+                    success = true;
+                    throw e;
+                } finally {
+                    balancer.onComplete(node, System.nanoTime() - start, success);
+                    pool.returnSlaveResourceObject(jedis);
+                }
+            }
+        };
+    }
+
+    @Override
+    protected NodeLease leaseNodes(String key, boolean readonly) {
+        Jedis jedis = null;
+        if (readonly && autoReadFromSlave) {
+            try {
+                jedis = pool.getSlaveResourceIfPresent();
+            } catch (JedisConnectionException e) {
+                logger.error(e.getMessage());
+            }
+        }
+        if (jedis == null) {
+            jedis = pool.getMasterResource();
+        }
+        return new NodeLease(Collections.singletonList(jedis), jedis);
+    }
+
+    @Override
+    protected HostAndPort routeMaster(String key) {
+        return pool.getMasterHostAndPort(key);
+    }
+
+    @Override
+    protected HostAndPort routeSlave(String key) {
+        return pool.getSlaveHostAndPort(key);
+    }
+
+    @Override
+    protected SlaveBalancer getSlaveBalancer() {
+        return pool.getSlaveBalancer();
+    }
+
+    @Override
+    protected void execute(RedisBatch batch, int retryTimes) {
+
+        retryTimes++;
+
+        if (retryTimes > 3) {
+
+            logger.error("have retried 3 times for redis batch");
+            throw new RedisClientException("have retried 3 times for redis batch");
+        }
 
-        } else {
+        List<RedisBatch.Command<?>> commands = batch.getCommands();
 
+        if (batch.isReadonly() && !batch.isReadFromMaster() && autoReadFromSlave) {
             Jedis jedis = null;
 
             try {
-                jedis = pool.getMasterResource();
-                T result = callBack.execute(jedis);
-                return result;
+                jedis = pool.getSlaveResourceIfPresent();
+                if (jedis != null) {
+                    Pipeline pipeline = jedis.pipelined();
+                    List<Response<?>> responses = RedisBatch.queueAll(commands, pipeline);
+                    pipeline.sync();
+                    RedisBatch.completeAll(commands, responses);
+                    return;
+                }
+            } catch (JedisConnectionException e) {
+                logger.error(e.getMessage());
+                if (jedis != null) {
+                    //从机实际下线
+                    String host = jedis.getClient().getHost();
+                    int port = jedis.getClient().getPort();
+                    pool.sdownSlave(null, new HostAndPort(host, port));
+                }
+                execute(batch, retryTimes);
+                return;
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
-                return execute(callBack, readonly, retryTimes);
+                execute(batch, retryTimes);
+                return;
             } finally {
                 if (jedis != null) {
-                    pool.returnMasterResourceObject(jedis);
+                    try {
+                        pool.returnSlaveResourceObject(jedis);
+                    } catch (Exception e) {
+                        logger.error("occur exception while close the jedis");
+                    }
                 }
             }
         }
+
+        Jedis jedis = null;
+
+        try {
+            jedis = pool.getMasterResource();
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<?>> responses = RedisBatch.queueAll(commands, pipeline);
+            pipeline.sync();
+            RedisBatch.completeAll(commands, responses);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            execute(batch, retryTimes);
+        } finally {
+            if (jedis != null) {
+                pool.returnMasterResourceObject(jedis);
+            }
+        }
+    }
+
+
+    public ReadHedger getReadHedger() {
+        return readHedger;
     }
 
+    public void setReadHedger(ReadHedger readHedger) {
+        this.readHedger = readHedger;
+    }
 
     public void setAutoReadFromSlave(boolean autoReadFromSlave) {
         this.autoReadFromSlave = autoReadFromSlave;
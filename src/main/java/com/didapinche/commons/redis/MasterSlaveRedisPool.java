@@ -1,15 +1,20 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.NodeWeights;
+import com.didapinche.commons.redis.balance.RandomSlaveBalancer;
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.util.CollectionUtils;
 import redis.clients.jedis.*;
-import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 
 /**
  * 单主多从的资源池
@@ -17,6 +22,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * 注意：如果要设置密码 master slave 的密码必须要设置成一样，否则sentinel调度会混乱
  * 默认db index：0
  * <p/>
+ * 路由状态保存在不可变的Topology快照中，读路径只读取volatile引用，不加锁；
+ * sentinel事件串行地构建新快照后整体替换，再关闭不再使用的连接池
+ * <p/>
+ * 新建的连接池先预热minIdle个连接（warmUpMillis内），再发布到拓扑中
+ * <p/>
  * File Created at 2015-7-28 by fengbin
  * <p/>
  * Copyright 2015 didapinche.com
@@ -27,22 +37,73 @@ public class MasterSlaveRedisPool implements RedisPool<Jedis>, InitializingBean
 
     private static final Logger logger = LoggerFactory.getLogger(MasterSlaveRedisPool.class);
 
+    /**
+     * 某一时刻的主从拓扑和对应的连接池，创建后不再修改
+     */
+    static final class Topology {
+        final HostAndPort masterHap;
+        final JedisPool masterPool;
+        final List<HostAndPort> slaveHaps;
+        final Map<HostAndPort, JedisPool> slavePools;
+
+        Topology(HostAndPort masterHap, JedisPool masterPool, List<HostAndPort> slaveHaps, Map<HostAndPort, JedisPool> slavePools) {
+            this.masterHap = masterHap;
+            this.masterPool = masterPool;
+            this.slaveHaps = Collections.unmodifiableList(new ArrayList<>(slaveHaps));
+            this.slavePools = Collections.unmodifiableMap(new HashMap<>(slavePools));
+        }
+
+        Topology withMaster(HostAndPort masterHap, JedisPool masterPool) {
+            return new Topology(masterHap, masterPool, slaveHaps, slavePools);
+        }
+
+        Topology withSlaves(List<HostAndPort> slaveHaps, Map<HostAndPort, JedisPool> slavePools) {
+            return new Topology(masterHap, masterPool, slaveHaps, slavePools);
+        }
+    }
+
+    private static final Topology EMPTY = new Topology(null, null, Collections.<HostAndPort>emptyList(),
+            Collections.<HostAndPort, JedisPool>emptyMap());
+
     /**
      * 连接池配置
      */
     private JedisPoolConfig jedisPoolConfig;
 
     /**
-     * master池
+     * switchMaster的次数，用于识别预热期间被后来的切换取代的master池
+     */
+    private long masterVersion = 0;
+
+    /**
+     * 当前拓扑
      */
-    private JedisPool masterJedisPool;
+    private volatile Topology topology = EMPTY;
 
     /**
-     * slave 池映射表
+     * slave选择策略
      */
-    private ConcurrentHashMap<HostAndPort, JedisPool> slaveJedisPoolMap;
+    private SlaveBalancer slaveBalancer = new RandomSlaveBalancer();
 
-    private Random randomSlaveIndex = new Random();
+    /**
+     * slave权重
+     */
+    private NodeWeights nodeWeights = new NodeWeights();
+
+    /**
+     * 被替换的连接池等待借出连接归还的最长时间 ms
+     */
+    private long drainMillis = 10000;
+
+    /**
+     * 新连接池发布前预热的最长时间 ms，<=0时不预热
+     */
+    private long warmUpMillis = 3000;
+
+    /**
+     * 重新上线slave的就绪探测
+     */
+    private ReadinessProber readinessProber = new ReadinessProber();
 
     /**
      * auth
@@ -55,132 +116,204 @@ public class MasterSlaveRedisPool implements RedisPool<Jedis>, InitializingBean
     private int timeout = Protocol.DEFAULT_TIMEOUT;
 
     /**
-     * master conf
+     * master conf，initPool时使用
      */
     private HostAndPort masterHap;
 
     /**
-     * slave conf
+     * slave conf，initPool时使用
      */
     private List<HostAndPort> slaveHaps;
 
-    private Object masterLock = new Object();
-
     @Override
-    public void initPool() {
-        initMasterPool();
-        initSlavePool();
+    public synchronized void initPool() {
+        Topology old = topology;
+        Map<HostAndPort, JedisPool> slavePools = new HashMap<>();
+        List<HostAndPort> slaves = slaveHaps == null ? Collections.<HostAndPort>emptyList() : slaveHaps;
+        for (HostAndPort slaveHap : slaves) {
+            slavePools.put(slaveHap, newPool(slaveHap));
+        }
+        JedisPool masterPool = newPool(masterHap);
+        List<JedisPool> pools = new ArrayList<>(slavePools.values());
+        pools.add(masterPool);
+        warm(pools);
+        topology = new Topology(masterHap, masterPool, slaves, slavePools);
+        close(old.masterPool);
+        close(old.slavePools.values());
     }
 
     @Override
-    public void initMasterPool() {
-        synchronized (masterLock) {
-            if (masterJedisPool != null)
-                masterJedisPool.close();
-            masterJedisPool = new JedisPool(jedisPoolConfig, masterHap.getHost(), masterHap.getPort(), timeout, passWord);
-        }
+    public synchronized void initMasterPool() {
+        Topology old = topology;
+        HostAndPort hap = old.masterHap != null ? old.masterHap : masterHap;
+        JedisPool masterPool = newPool(hap);
+        warm(Collections.singletonList(masterPool));
+        topology = old.withMaster(hap, masterPool);
+        close(old.masterPool);
     }
 
     @Override
     public synchronized void initSlavePool() {
-        if (CollectionUtils.isEmpty(slaveHaps))
+        Topology old = topology;
+        List<HostAndPort> slaves = old.masterPool != null ? old.slaveHaps : slaveHaps;
+        if (slaves == null || slaves.isEmpty())
             return;
 
-        if (slaveJedisPoolMap == null)
-            slaveJedisPoolMap = new ConcurrentHashMap<>();
-        else {
-            //防止连接泄露
-            for (JedisPool slaveJedisPool : slaveJedisPoolMap.values()) {
-                slaveJedisPool.close();
-            }
-            slaveJedisPoolMap.clear();
-        }
-
-        for (HostAndPort slaveHap : slaveHaps) {
-            slaveJedisPoolMap.put(slaveHap, new JedisPool(jedisPoolConfig, slaveHap.getHost(), slaveHap.getPort(), timeout, passWord));
+        Map<HostAndPort, JedisPool> slavePools = new HashMap<>();
+        for (HostAndPort slaveHap : slaves) {
+            slavePools.put(slaveHap, newPool(slaveHap));
         }
-
+        warm(slavePools.values());
+        topology = old.withSlaves(slaves, slavePools);
+        //防止连接泄露
+        close(old.slavePools.values());
     }
 
     @Override
     public boolean hasSlave() {
-        return !(CollectionUtils.isEmpty(slaveHaps) || CollectionUtils.isEmpty(slaveJedisPoolMap));
+        return !topology.slaveHaps.isEmpty();
     }
 
     @Override
     public void switchMaster(String masterName, HostAndPort newMasterHostAndPort) {
-        //新上的主机一定是以前的从机，所以先下线从机
-        sdownSlave(masterName, newMasterHostAndPort);
+        long version;
+        synchronized (this) {
+            //重复的切换事件
+            if (topology.masterPool != null && newMasterHostAndPort.equals(topology.masterHap))
+                return;
+
+            //新上的主机一定是以前的从机，所以先下线从机
+            sdownSlave(masterName, newMasterHostAndPort);
+            version = ++masterVersion;
+        }
+
+        //在锁外建池、预热，不阻塞sdownSlave等其它拓扑变化
+        JedisPool masterPool = newPool(newMasterHostAndPort);
+        warm(Collections.singletonList(masterPool));
 
-        this.masterHap = newMasterHostAndPort;
-        initMasterPool();
+        Topology old;
+        synchronized (this) {
+            //预热期间又有新的切换，以后到的为准
+            if (version != masterVersion) {
+                masterPool.destroy();
+                return;
+            }
+            old = topology;
+            topology = old.withMaster(newMasterHostAndPort, masterPool);
+        }
+        close(old.masterPool);
     }
 
 
     @Override
     public synchronized void sdownSlave(String masterName, HostAndPort hostAndPort) {
-        //串行化slave配置列表删除动作，结合retry机制 可切换到可用服务
-        //下线 先改配置 再改池子
-        boolean isAboutToDown = slaveHaps.remove(hostAndPort);
-        if (isAboutToDown)
-            removeSlavePoolPartly(hostAndPort);
+        //串行化拓扑修改，结合retry机制 可切换到可用服务
+        readinessProber.cancel(hostAndPort);
+        Topology old = topology;
+        if (!old.slaveHaps.contains(hostAndPort))
+            return;
+
+        List<HostAndPort> slaves = new ArrayList<>(old.slaveHaps);
+        slaves.remove(hostAndPort);
+        Map<HostAndPort, JedisPool> slavePools = new HashMap<>(old.slavePools);
+        JedisPool downSlavePool = slavePools.remove(hostAndPort);
+        topology = old.withSlaves(slaves, slavePools);
+        //防止连接泄露
+        close(downSlavePool);
     }
 
     /**
-     * 无需重新初始化，移除下线的slave pool
-     *
-     * @param hostAndPort
+     * slave重新上线：后台探测到数据加载完成、复制正常后再发布，不阻塞调用线程
      */
-    private void removeSlavePoolPartly(HostAndPort hostAndPort) {
-        JedisPool downSlavePool = slaveJedisPoolMap.remove(hostAndPort);
-        //防止连接泄露
-        if (downSlavePool != null)
-            downSlavePool.close();
-    }
-
-    @Override
-    public synchronized void nsdownSlave(String masterName, HostAndPort hostAndPort) {
-        boolean isAboutToUp = !slaveHaps.contains(hostAndPort);
-        if (isAboutToUp) { //上线 先改池子再改配置
-            JedisPool slaveJedisPool = addSlavePoolPartly(hostAndPort);
-            //等待redis 加载数据
-            Jedis decideJedis = slaveJedisPool.getResource();
-            while (true) {
-                try {
-                    decideJedis.randomKey();
-                    break;
-                } catch (JedisDataException e) {
-                    logger.error(e.getMessage());
-                }
+    @Override
+    public void nsdownSlave(String masterName, final HostAndPort hostAndPort) {
+        if (topology.slaveHaps.contains(hostAndPort))
+            return;
+
+        readinessProber.probe(hostAndPort, passWord, timeout, new Runnable() {
+            @Override
+            public void run() {
+                admitSlave(hostAndPort);
             }
-            decideJedis.close();
+        });
+    }
+
+    private void admitSlave(HostAndPort hostAndPort) {
+        //探测期间又下线了
+        if (!readinessProber.isProbing(hostAndPort) || topology.slaveHaps.contains(hostAndPort))
+            return;
+
+        //在锁外建池、预热，不阻塞switchMaster/sdownSlave
+        JedisPool slaveJedisPool = newPool(hostAndPort);
+        warm(Collections.singletonList(slaveJedisPool));
 
-            slaveHaps.add(hostAndPort);
+        if (!publishSlave(hostAndPort, slaveJedisPool)) {
+            slaveJedisPool.destroy();
         }
     }
 
     /**
-     * 无需重新初始化，增加上线的slave pool,并返回一个连接池
-     *
-     * @param hostAndPort
+     * 可用后再发布到拓扑中，预热期间又下线或已经上线时返回false
      */
-    private JedisPool addSlavePoolPartly(HostAndPort hostAndPort) {
-        if (slaveJedisPoolMap == null)
-            slaveJedisPoolMap = new ConcurrentHashMap<>();
-        slaveJedisPoolMap.put(hostAndPort, new JedisPool(jedisPoolConfig, hostAndPort.getHost(), hostAndPort.getPort(), timeout, passWord));
-        return slaveJedisPoolMap.get(hostAndPort);
+    private synchronized boolean publishSlave(HostAndPort hostAndPort, JedisPool slaveJedisPool) {
+        Topology old = topology;
+        if (!readinessProber.isProbing(hostAndPort) || old.slaveHaps.contains(hostAndPort))
+            return false;
+
+        List<HostAndPort> slaves = new ArrayList<>(old.slaveHaps);
+        slaves.add(hostAndPort);
+        Map<HostAndPort, JedisPool> slavePools = new HashMap<>(old.slavePools);
+        slavePools.put(hostAndPort, slaveJedisPool);
+        topology = old.withSlaves(slaves, slavePools);
+        return true;
     }
 
     @Override
-    public void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
+    public synchronized void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
         this.masterHap = masterInfo;
         this.slaveHaps = slaveHaps;
-        initPool();
+    }
+
+    @Override
+    public HostAndPort getMaster(String masterName) {
+        return getMasterHap();
+    }
+
+    @Override
+    public List<HostAndPort> getSlaves(String masterName) {
+        List<HostAndPort> slaves = getSlaveHaps();
+        return slaves == null ? Collections.<HostAndPort>emptyList() : slaves;
+    }
+
+    private JedisPool newPool(HostAndPort hap) {
+        return new JedisPool(jedisPoolConfig, hap.getHost(), hap.getPort(), timeout, passWord);
+    }
+
+    /**
+     * 预热新建的连接池，超时后照常发布
+     */
+    private void warm(Collection<JedisPool> pools) {
+        if (jedisPoolConfig != null) {
+            PoolWarmer.warm(pools, jedisPoolConfig.getMinIdle(), warmUpMillis);
+        }
+    }
+
+    /**
+     * 被替换的连接池等借出的连接归还后再关闭
+     */
+    private void close(JedisPool pool) {
+        PoolDrainer.drain(pool, drainMillis);
+    }
+
+    private void close(Iterable<JedisPool> pools) {
+        for (JedisPool pool : pools) {
+            close(pool);
+        }
     }
 
     @Override
     public Jedis getMasterResource() {
-        return masterJedisPool.getResource();
+        return topology.masterPool.getResource();
     }
 
     @Override
@@ -188,13 +321,66 @@ public class MasterSlaveRedisPool implements RedisPool<Jedis>, InitializingBean
         jedis.close();
     }
 
+    /**
+     * 没有slave时取master的连接
+     */
     @Override
     public Jedis getSlaveResource() {
-        int index = randomSlaveIndex.nextInt(slaveHaps.size());
-        JedisPool jedisPool = slaveJedisPoolMap.get(slaveHaps.get(index));
+        Topology current = topology;
+        Jedis jedis = getSlaveResource(current);
+        return jedis != null ? jedis : current.masterPool.getResource();
+    }
+
+    /**
+     * 在同一个拓扑快照中选slave并取连接，没有slave时返回null
+     */
+    public Jedis getSlaveResourceIfPresent() {
+        return getSlaveResource(topology);
+    }
+
+    private Jedis getSlaveResource(Topology current) {
+        if (current.slaveHaps.isEmpty())
+            return null;
+        return getSlaveResource(current, slaveBalancer.select(current.slaveHaps, nodeWeights));
+    }
+
+    /**
+     * 按slaveBalancer选一个slave，没有slave时返回null
+     */
+    public HostAndPort selectSlave() {
+        Topology current = topology;
+        if (current.slaveHaps.isEmpty())
+            return null;
+        return slaveBalancer.select(current.slaveHaps, nodeWeights);
+    }
+
+    /**
+     * 取指定slave的连接，slave已下线时抛出JedisConnectionException
+     */
+    public Jedis getSlaveResource(HostAndPort slaveHap) {
+        return getSlaveResource(topology, slaveHap);
+    }
+
+    private static Jedis getSlaveResource(Topology current, HostAndPort slaveHap) {
+        JedisPool jedisPool = current.slavePools.get(slaveHap);
+        if (jedisPool == null)
+            throw new JedisConnectionException("slave " + slaveHap + " is down");
         return jedisPool.getResource();
     }
 
+    @Override
+    public HostAndPort getMasterHostAndPort(String key) {
+        return topology.masterHap;
+    }
+
+    @Override
+    public HostAndPort getSlaveHostAndPort(String key) {
+        Topology current = topology;
+        if (current.slaveHaps.isEmpty())
+            return null;
+        return slaveBalancer.select(current.slaveHaps, nodeWeights);
+    }
+
     @Override
     public void returnSlaveResourceObject(Jedis jedis) {
         jedis.close();
@@ -232,16 +418,66 @@ public class MasterSlaveRedisPool implements RedisPool<Jedis>, InitializingBean
         this.passWord = passWord;
     }
 
+    /**
+     * 当前master，未初始化时返回配置值
+     */
     public HostAndPort getMasterHap() {
-        return masterHap;
+        Topology current = topology;
+        return current.masterPool != null ? current.masterHap : masterHap;
     }
 
     public void setMasterHap(HostAndPort masterHap) {
         this.masterHap = masterHap;
     }
 
+    public long getDrainMillis() {
+        return drainMillis;
+    }
+
+    public void setDrainMillis(long drainMillis) {
+        this.drainMillis = drainMillis;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public void setWarmUpMillis(long warmUpMillis) {
+        this.warmUpMillis = warmUpMillis;
+    }
+
+    public ReadinessProber getReadinessProber() {
+        return readinessProber;
+    }
+
+    public void setReadinessProber(ReadinessProber readinessProber) {
+        this.readinessProber = readinessProber;
+    }
+
+    @Override
+    public SlaveBalancer getSlaveBalancer() {
+        return slaveBalancer;
+    }
+
+    public void setSlaveBalancer(SlaveBalancer slaveBalancer) {
+        this.slaveBalancer = slaveBalancer;
+    }
+
+    @Override
+    public NodeWeights getNodeWeights() {
+        return nodeWeights;
+    }
+
+    public void setNodeWeights(NodeWeights nodeWeights) {
+        this.nodeWeights = nodeWeights;
+    }
+
+    /**
+     * 当前在线的slave（只读快照），未初始化时返回配置值
+     */
     public List<HostAndPort> getSlaveHaps() {
-        return slaveHaps;
+        Topology current = topology;
+        return current.masterPool != null ? current.slaveHaps : slaveHaps;
     }
 
     public void setSlaveHaps(List<HostAndPort> slaveHaps) {
@@ -1,10 +1,39 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import com.didapinche.commons.redis.exceptions.MultiKeyRedisClientException;
 import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Project: redis client
@@ -13,13 +42,33 @@ import redis.clients.jedis.ShardedJedis;
  *
  * Copyright 2015 didapinche.com
  */
-public final class MatrixRedisClient extends AbstractRedisClient{
+public final class MatrixRedisClient extends AbstractRedisClient implements DisposableBean {
 
     private static Logger logger = LoggerFactory.getLogger(MatrixRedisClient.class);
 
 
     private RedisPool<ShardedJedis> redisPool;
 
+    /**
+     * 多分片并行执行的线程池，未设置时按shardThreads创建
+     */
+    private volatile ExecutorService shardExecutor;
+
+    private int shardThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 分片线程池的队列长度，队列满时由调用线程自己执行
+     */
+    private int shardQueueSize = 1024;
+
+    //shardExecutor是否由本客户端创建，只关闭自己创建的线程池
+    private boolean ownShardExecutor = false;
+
+    /**
+     * 单key命令只借用key所在节点的连接，需要MatrixRedisPool
+     */
+    private boolean shardRouting = true;
+
     @Override
     protected <T> T execute(CallBack<T> callBack, boolean readonly,int retryTimes) {
         retryTimes ++;
@@ -30,7 +79,7 @@ public final class MatrixRedisClient extends AbstractRedisClient{
             throw new RedisClientException("have retried 3 times for redis command");
         }
 
-        if (readonly && autoReadFromSlave && redisPool.hasSlave()) {
+        if (readonly && autoReadFromSlave) {
             ShardedJedis shardedJedis = null;
 
             try {
@@ -38,6 +87,8 @@ public final class MatrixRedisClient extends AbstractRedisClient{
                 T result = callBack.execute(shardedJedis);
 
                 return result;
+            } catch (MultiKeyRedisClientException e) {
+                throw e;
             } catch (Exception e) {
                 logger.warn(e.getMessage(), e);
                 if (readonly){
@@ -59,6 +110,8 @@ public final class MatrixRedisClient extends AbstractRedisClient{
                 T result = callBack.execute(shardedJedis);
 
                 return result;
+            }catch (MultiKeyRedisClientException e) {
+                throw e;
             }catch (Exception e) {
                 logger.warn(e.getMessage(),e);
                 if (readonly){
@@ -74,11 +127,776 @@ public final class MatrixRedisClient extends AbstractRedisClient{
         }
     }
 
+    @Override
+    protected <T> T execute(CallBack<T> callBack, boolean readonly, String key) {
+        if (shardRouting && redisPool instanceof MatrixRedisPool) {
+            return execute(callBack, readonly, SafeEncoder.encode(key), 0);
+        }
+        return execute(callBack, readonly);
+    }
+
+    @Override
+    protected <T> T execute(CallBack<T> callBack, boolean readonly, byte[] key) {
+        if (shardRouting && redisPool instanceof MatrixRedisPool) {
+            return execute(callBack, readonly, key, 0);
+        }
+        return execute(callBack, readonly);
+    }
+
+    /**
+     * 先按key算出分片，再从该节点的连接池借连接执行
+     */
+    private <T> T execute(CallBack<T> callBack, boolean readonly, byte[] key, int retryTimes) {
+        retryTimes ++;
+
+        if(retryTimes > 3) {
+
+            logger.error("have retried 3 times for redis command");
+            throw new RedisClientException("have retried 3 times for redis command");
+        }
+
+        MatrixRedisPool pool = (MatrixRedisPool) redisPool;
+        HostAndPort slave = readonly && autoReadFromSlave ? pool.getSlaveHostAndPort(key) : null;
+        boolean fromSlave = slave != null;
+        HostAndPort node = fromSlave ? slave : pool.getMasterHostAndPort(key);
+        SlaveBalancer balancer = pool.getSlaveBalancer();
+        Jedis jedis = null;
+        long start = 0;
+        boolean success = false;
+
+        try {
+            jedis = pool.getNodeResource(node);
+            if (fromSlave) {
+                balancer.onStart(node);
+                start = System.nanoTime();
+            }
+            T result = callBack.execute(jedis);
+            success = true;
+            return result;
+        } catch (MultiKeyRedisClientException e) {
+            throw e;
+        } catch (Exception e) {
+            //命令错误不是节点故障，按正常响应计入耗时
+            success = !(e instanceof JedisConnectionException);
+            logger.warn(e.getMessage(), e);
+            if (readonly){
+                return execute(callBack, readonly, key, retryTimes);
+            }
+            throw e;
+        } finally {
+            if (start != 0) {
+                balancer.onComplete(node, System.nanoTime() - start, success);
+            }
+            if (jedis != null) {
+                pool.returnNodeResource(jedis);
+            }
+        }
+    }
+
     @Override
     protected <T> T execute(MultiKeyCallBack<T> callBack, boolean readonly, int retryTimes) {
         throw new MultiKeyRedisClientException();
     }
 
+    @Override
+    protected NodeLease leaseNodes(String key, boolean readonly) {
+        ShardedJedis shardedJedis = null;
+        if (readonly && autoReadFromSlave) {
+            try {
+                shardedJedis = redisPool.getSlaveResource();
+            } catch (JedisConnectionException e) {
+                logger.error(e.getMessage());
+            }
+        }
+        if (shardedJedis == null) {
+            shardedJedis = redisPool.getMasterResource();
+        }
+
+        List<Jedis> nodes;
+        if (key == null) {
+            nodes = new ArrayList<>(shardedJedis.getAllShards());
+        } else {
+            nodes = Collections.singletonList(shardedJedis.getShard(key));
+        }
+        return new NodeLease(nodes, shardedJedis);
+    }
+
+    /**
+     * 失效通知发布到channel所在的master分片，与订阅的分片一致
+     */
+    @Override
+    protected void publishInvalidation(final NearCache cache, final String key) {
+        try {
+            execute(new ShardedCallBack<Long>() {
+                public Long execute(ShardedJedis shardedJedis) {
+                    return shardedJedis.getShard(cache.getChannel()).publish(cache.getChannel(), cache.invalidationMessage(key));
+                }
+            }, false);
+        } catch (Exception e) {
+            logger.warn("publish near cache invalidation failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected ExecutorService getScanExecutor() {
+        return getShardExecutor();
+    }
+
+    @Override
+    protected HostAndPort routeMaster(String key) {
+        return redisPool.getMasterHostAndPort(key);
+    }
+
+    @Override
+    protected HostAndPort routeSlave(String key) {
+        return redisPool.getSlaveHostAndPort(key);
+    }
+
+    @Override
+    protected SlaveBalancer getSlaveBalancer() {
+        return redisPool.getSlaveBalancer();
+    }
+
+    @Override
+    protected void execute(RedisBatch batch, int retryTimes) {
+        retryTimes ++;
+
+        if(retryTimes > 3) {
+
+            logger.error("have retried 3 times for redis batch");
+            throw new RedisClientException("have retried 3 times for redis batch");
+        }
+
+        boolean readonly = batch.isReadonly();
+        boolean fromSlave = readonly && !batch.isReadFromMaster() && autoReadFromSlave;
+
+        ShardedJedis shardedJedis = null;
+
+        try {
+            if (fromSlave) {
+                shardedJedis = redisPool.getSlaveResource();
+            } else {
+                shardedJedis = redisPool.getMasterResource();
+            }
+
+            //按分片分组，每个分片一个pipeline，各分片并行发送
+            Map<JedisShardInfo, List<RedisBatch.Command<?>>> shardCommands = new LinkedHashMap<>();
+            for (RedisBatch.Command<?> command : batch.getCommands()) {
+                if (command.key == null) {
+                    throw new RedisClientException("batch command without key can not be routed in MatrixRedisClient");
+                }
+                JedisShardInfo shardInfo = shardedJedis.getShardInfo(command.key);
+                List<RedisBatch.Command<?>> commands = shardCommands.get(shardInfo);
+                if (commands == null) {
+                    commands = new ArrayList<>();
+                    shardCommands.put(shardInfo, commands);
+                }
+                commands.add(command);
+            }
+
+            List<ShardCallBack<Void>> callBacks = new ArrayList<>(shardCommands.size());
+            for (Map.Entry<JedisShardInfo, List<RedisBatch.Command<?>>> entry : shardCommands.entrySet()) {
+                final Jedis shard = shardedJedis.getShard(entry.getValue().get(0).key);
+                final List<RedisBatch.Command<?>> commands = entry.getValue();
+                callBacks.add(new ShardCallBack<Void>() {
+                    @Override
+                    public Void execute() {
+                        Pipeline pipeline = shard.pipelined();
+                        List<Response<?>> responses = RedisBatch.queueAll(commands, pipeline);
+                        pipeline.sync();
+                        RedisBatch.completeAll(commands, responses);
+                        return null;
+                    }
+                });
+            }
+
+            executeOnShards(callBacks);
+        } catch (Exception e) {
+            logger.warn(e.getMessage(), e);
+            if (readonly){
+                execute(batch, retryTimes);
+                return;
+            }
+            throw e;
+        }finally {
+            if(shardedJedis != null) {
+                if (fromSlave) {
+                    redisPool.returnSlaveResourceObject(shardedJedis);
+                } else {
+                    redisPool.returnMasterResourceObject(shardedJedis);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在单个分片上执行的动作
+     */
+    protected static interface ShardCallBack<T> {
+        T execute();
+    }
+
+    /**
+     * 并行执行各分片上的动作，结果顺序与callBacks一致；第一个分片由调用线程直接执行
+     */
+    protected <T> List<T> executeOnShards(List<ShardCallBack<T>> callBacks) {
+        List<T> results = new ArrayList<>(callBacks.size());
+        if (callBacks.size() == 1) {
+            results.add(callBacks.get(0).execute());
+            return results;
+        }
+
+        ExecutorService executor = getShardExecutor();
+        List<Future<T>> futures = new ArrayList<>(callBacks.size());
+        futures.add(null);
+        for (int i = 1; i < callBacks.size(); i++) {
+            final ShardCallBack<T> callBack = callBacks.get(i);
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return callBack.execute();
+                }
+            }));
+        }
+
+        RuntimeException failure = null;
+        try {
+            results.add(callBacks.get(0).execute());
+        } catch (RuntimeException e) {
+            failure = e;
+            results.add(null);
+        }
+
+        for (int i = 1; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                            : new RedisClientException(String.valueOf(e.getCause()));
+                }
+                results.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisClientException("interrupted while waiting for shard results");
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * 直接操作ShardedJedis的动作
+     */
+    protected static interface ShardedCallBack<T> {
+        T execute(ShardedJedis shardedJedis);
+    }
+
+    protected <T> T execute(final ShardedCallBack<T> callBack, boolean readonly) {
+        return execute(new CallBack<T>() {
+            public T execute(JedisCommands jedis) {
+                return callBack.execute((ShardedJedis) jedis);
+            }
+        }, readonly);
+    }
+
+    /**
+     * 某个分片上分到的参数
+     */
+    protected static class KeyPartition {
+        /**
+         * 分片连接
+         */
+        final Jedis shard;
+        /**
+         * 该分片上的key在原参数中的位置
+         */
+        final List<Integer> indexes = new ArrayList<>();
+        /**
+         * 该分片上的参数（mset时为key value交替）
+         */
+        final List<String> args = new ArrayList<>();
+        /**
+         * byte[]命令该分片上的参数
+         */
+        final List<byte[]> binaryArgs = new ArrayList<>();
+
+        KeyPartition(Jedis shard) {
+            this.shard = shard;
+        }
+
+        String[] argArray() {
+            return args.toArray(new String[args.size()]);
+        }
+
+        byte[][] binaryArgArray() {
+            return binaryArgs.toArray(new byte[binaryArgs.size()][]);
+        }
+    }
+
+    /**
+     * 在分片上执行的多key命令
+     */
+    protected static interface PartitionCallBack<T> {
+        T execute(Jedis shard, String[] args);
+    }
+
+    /**
+     * 在分片上执行的byte[]多key命令
+     */
+    protected static interface BinaryPartitionCallBack<T> {
+        T execute(Jedis shard, byte[][] args);
+    }
+
+    /**
+     * 按key所在分片拆分参数
+     *
+     * @param args   参数
+     * @param stride 每个key占用的参数个数，mset为2
+     */
+    protected List<KeyPartition> partition(ShardedJedis shardedJedis, String[] args, int stride) {
+        if (args.length % stride != 0) {
+            throw new RedisClientException("wrong number of arguments");
+        }
+        Map<JedisShardInfo, KeyPartition> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += stride) {
+            JedisShardInfo shardInfo = shardedJedis.getShardInfo(args[i]);
+            KeyPartition partition = partitions.get(shardInfo);
+            if (partition == null) {
+                partition = new KeyPartition(shardedJedis.getShard(args[i]));
+                partitions.put(shardInfo, partition);
+            }
+            partition.indexes.add(i / stride);
+            for (int j = 0; j < stride; j++) {
+                partition.args.add(args[i + j]);
+            }
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    /**
+     * 按key所在分片拆分byte[]参数，与String参数的拆分一致
+     */
+    protected List<KeyPartition> partition(ShardedJedis shardedJedis, byte[][] args, int stride) {
+        if (args.length % stride != 0) {
+            throw new RedisClientException("wrong number of arguments");
+        }
+        Map<JedisShardInfo, KeyPartition> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += stride) {
+            JedisShardInfo shardInfo = shardedJedis.getShardInfo(args[i]);
+            KeyPartition partition = partitions.get(shardInfo);
+            if (partition == null) {
+                partition = new KeyPartition(shardedJedis.getShard(args[i]));
+                partitions.put(shardInfo, partition);
+            }
+            partition.indexes.add(i / stride);
+            for (int j = 0; j < stride; j++) {
+                partition.binaryArgs.add(args[i + j]);
+            }
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    /**
+     * 各分片并行执行，结果顺序与partitions一致
+     */
+    protected <T> List<T> executeOnPartitions(List<KeyPartition> partitions, final PartitionCallBack<T> callBack) {
+        List<ShardCallBack<T>> callBacks = new ArrayList<>(partitions.size());
+        for (final KeyPartition partition : partitions) {
+            callBacks.add(new ShardCallBack<T>() {
+                @Override
+                public T execute() {
+                    return callBack.execute(partition.shard, partition.argArray());
+                }
+            });
+        }
+        return executeOnShards(callBacks);
+    }
+
+    protected <T> List<T> executeOnBinaryPartitions(List<KeyPartition> partitions, final BinaryPartitionCallBack<T> callBack) {
+        List<ShardCallBack<T>> callBacks = new ArrayList<>(partitions.size());
+        for (final KeyPartition partition : partitions) {
+            callBacks.add(new ShardCallBack<T>() {
+                @Override
+                public T execute() {
+                    return callBack.execute(partition.shard, partition.binaryArgArray());
+                }
+            });
+        }
+        return executeOnShards(callBacks);
+    }
+
+    /**
+     * 要求所有key在同一个分片上，用于无法拆分的命令
+     */
+    protected KeyPartition singlePartition(ShardedJedis shardedJedis, String[] args, int stride, String command) {
+        List<KeyPartition> partitions = partition(shardedJedis, args, stride);
+        if (partitions.size() != 1) {
+            throw new MultiKeyRedisClientException(command + " keys must be in the same shard in MatrixRedisClient");
+        }
+        return partitions.get(0);
+    }
+
+    protected KeyPartition singlePartition(ShardedJedis shardedJedis, byte[][] args, int stride, String command) {
+        List<KeyPartition> partitions = partition(shardedJedis, args, stride);
+        if (partitions.size() != 1) {
+            throw new MultiKeyRedisClientException(command + " keys must be in the same shard in MatrixRedisClient");
+        }
+        return partitions.get(0);
+    }
+
+    /* multi key commands partitioned by shard*/
+
+    @Override
+    public Long del(final String... keys) {
+        return afterWrite(keys, 1, execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                List<Long> counts = executeOnPartitions(partition(shardedJedis, keys, 1), new PartitionCallBack<Long>() {
+                    public Long execute(Jedis shard, String[] args) {
+                        return shard.del(args);
+                    }
+                });
+                long count = 0;
+                for (Long c : counts) {
+                    count += c;
+                }
+                return count;
+            }
+        }, false));
+    }
+
+    @Override
+    public List<String> mget(final String... keys) {
+        return execute(new ShardedCallBack<List<String>>() {
+            public List<String> execute(ShardedJedis shardedJedis) {
+                List<KeyPartition> partitions = partition(shardedJedis, keys, 1);
+                List<List<String>> values = executeOnPartitions(partitions, new PartitionCallBack<List<String>>() {
+                    public List<String> execute(Jedis shard, String[] args) {
+                        return shard.mget(args);
+                    }
+                });
+
+                //按调用方的key顺序合并
+                String[] result = new String[keys.length];
+                for (int i = 0; i < partitions.size(); i++) {
+                    List<Integer> indexes = partitions.get(i).indexes;
+                    List<String> shardValues = values.get(i);
+                    for (int j = 0; j < indexes.size(); j++) {
+                        result[indexes.get(j)] = shardValues.get(j);
+                    }
+                }
+                return Arrays.asList(result);
+            }
+        }, true);
+    }
+
+    /**
+     * 各分片分别mset，跨分片时不保证原子性
+     */
+    @Override
+    public String mset(final String... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new ShardedCallBack<String>() {
+            public String execute(ShardedJedis shardedJedis) {
+                List<String> replies = executeOnPartitions(partition(shardedJedis, keysvalues, 2), new PartitionCallBack<String>() {
+                    public String execute(Jedis shard, String[] args) {
+                        return shard.mset(args);
+                    }
+                });
+                return replies.get(0);
+            }
+        }, false));
+    }
+
+    /**
+     * msetnx需要原子性，只支持所有key在同一分片
+     */
+    @Override
+    public Long msetnx(final String... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                KeyPartition partition = singlePartition(shardedJedis, keysvalues, 2, "msetnx");
+                return partition.shard.msetnx(partition.argArray());
+            }
+        }, false));
+    }
+
+    @Override
+    protected List<String> coalescedMget(String... keys) {
+        return mget(keys);
+    }
+
+    /**
+     * 多个HyperLogLog的并集基数无法按分片相加，只支持所有key在同一分片
+     */
+    @Override
+    public long pfcount(final String... keys) {
+        return execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                KeyPartition partition = singlePartition(shardedJedis, keys, 1, "pfcount");
+                return partition.shard.pfcount(partition.argArray());
+            }
+        }, true);
+    }
+
+    @Override
+    public Set<String> sunion(final String... keys) {
+        return execute(new ShardedCallBack<Set<String>>() {
+            public Set<String> execute(ShardedJedis shardedJedis) {
+                List<Set<String>> members = executeOnPartitions(partition(shardedJedis, keys, 1), new PartitionCallBack<Set<String>>() {
+                    public Set<String> execute(Jedis shard, String[] args) {
+                        return shard.sunion(args);
+                    }
+                });
+                Set<String> result = new HashSet<>();
+                for (Set<String> shardMembers : members) {
+                    result.addAll(shardMembers);
+                }
+                return result;
+            }
+        }, true);
+    }
+
+    @Override
+    public Set<String> sinter(final String... keys) {
+        return execute(new ShardedCallBack<Set<String>>() {
+            public Set<String> execute(ShardedJedis shardedJedis) {
+                List<Set<String>> members = executeOnPartitions(partition(shardedJedis, keys, 1), new PartitionCallBack<Set<String>>() {
+                    public Set<String> execute(Jedis shard, String[] args) {
+                        return shard.sinter(args);
+                    }
+                });
+                Set<String> result = new HashSet<>(members.get(0));
+                for (int i = 1; i < members.size() && !result.isEmpty(); i++) {
+                    result.retainAll(members.get(i));
+                }
+                return result;
+            }
+        }, true);
+    }
+
+    /**
+     * 第一个key所在分片先做sdiff，再减去其它分片上key的并集
+     */
+    @Override
+    public Set<String> sdiff(final String... keys) {
+        return execute(new ShardedCallBack<Set<String>>() {
+            public Set<String> execute(ShardedJedis shardedJedis) {
+                final List<KeyPartition> partitions = partition(shardedJedis, keys, 1);
+                List<Set<String>> members = executeOnPartitions(partitions, new PartitionCallBack<Set<String>>() {
+                    public Set<String> execute(Jedis shard, String[] args) {
+                        if (shard == partitions.get(0).shard) {
+                            return shard.sdiff(args);
+                        }
+                        return shard.sunion(args);
+                    }
+                });
+                Set<String> result = new HashSet<>(members.get(0));
+                for (int i = 1; i < members.size() && !result.isEmpty(); i++) {
+                    result.removeAll(members.get(i));
+                }
+                return result;
+            }
+        }, true);
+    }
+
+    /* binary multi key commands partitioned by shard*/
+
+    @Override
+    public Long del(final byte[]... keys) {
+        return afterWrite(keys, 1, execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                List<Long> counts = executeOnBinaryPartitions(partition(shardedJedis, keys, 1), new BinaryPartitionCallBack<Long>() {
+                    public Long execute(Jedis shard, byte[][] args) {
+                        return shard.del(args);
+                    }
+                });
+                long count = 0;
+                for (Long c : counts) {
+                    count += c;
+                }
+                return count;
+            }
+        }, false));
+    }
+
+    @Override
+    public List<byte[]> mget(final byte[]... keys) {
+        return execute(new ShardedCallBack<List<byte[]>>() {
+            public List<byte[]> execute(ShardedJedis shardedJedis) {
+                List<KeyPartition> partitions = partition(shardedJedis, keys, 1);
+                List<List<byte[]>> values = executeOnBinaryPartitions(partitions, new BinaryPartitionCallBack<List<byte[]>>() {
+                    public List<byte[]> execute(Jedis shard, byte[][] args) {
+                        return shard.mget(args);
+                    }
+                });
+
+                //按调用方的key顺序合并
+                byte[][] result = new byte[keys.length][];
+                for (int i = 0; i < partitions.size(); i++) {
+                    List<Integer> indexes = partitions.get(i).indexes;
+                    List<byte[]> shardValues = values.get(i);
+                    for (int j = 0; j < indexes.size(); j++) {
+                        result[indexes.get(j)] = shardValues.get(j);
+                    }
+                }
+                return Arrays.asList(result);
+            }
+        }, true);
+    }
+
+    /**
+     * 各分片分别mset，跨分片时不保证原子性
+     */
+    @Override
+    public String mset(final byte[]... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new ShardedCallBack<String>() {
+            public String execute(ShardedJedis shardedJedis) {
+                List<String> replies = executeOnBinaryPartitions(partition(shardedJedis, keysvalues, 2), new BinaryPartitionCallBack<String>() {
+                    public String execute(Jedis shard, byte[][] args) {
+                        return shard.mset(args);
+                    }
+                });
+                return replies.get(0);
+            }
+        }, false));
+    }
+
+    /**
+     * msetnx需要原子性，只支持所有key在同一分片
+     */
+    @Override
+    public Long msetnx(final byte[]... keysvalues) {
+        return afterWrite(keysvalues, 2, execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                KeyPartition partition = singlePartition(shardedJedis, keysvalues, 2, "msetnx");
+                return partition.shard.msetnx(partition.binaryArgArray());
+            }
+        }, false));
+    }
+
+    /**
+     * 多个HyperLogLog的并集基数无法按分片相加，只支持所有key在同一分片
+     */
+    @Override
+    public Long pfcount(final byte[]... keys) {
+        return execute(new ShardedCallBack<Long>() {
+            public Long execute(ShardedJedis shardedJedis) {
+                KeyPartition partition = singlePartition(shardedJedis, keys, 1, "pfcount");
+                return partition.shard.pfcount(partition.binaryArgArray());
+            }
+        }, true);
+    }
+
+    @Override
+    public Set<byte[]> sunion(final byte[]... keys) {
+        return execute(new ShardedCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(ShardedJedis shardedJedis) {
+                List<Set<byte[]>> members = executeOnBinaryPartitions(partition(shardedJedis, keys, 1), new BinaryPartitionCallBack<Set<byte[]>>() {
+                    public Set<byte[]> execute(Jedis shard, byte[][] args) {
+                        return shard.sunion(args);
+                    }
+                });
+                Map<ByteBuffer, byte[]> result = new LinkedHashMap<>();
+                for (Set<byte[]> shardMembers : members) {
+                    putAll(result, shardMembers);
+                }
+                return new LinkedHashSet<>(result.values());
+            }
+        }, true);
+    }
+
+    @Override
+    public Set<byte[]> sinter(final byte[]... keys) {
+        return execute(new ShardedCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(ShardedJedis shardedJedis) {
+                List<Set<byte[]>> members = executeOnBinaryPartitions(partition(shardedJedis, keys, 1), new BinaryPartitionCallBack<Set<byte[]>>() {
+                    public Set<byte[]> execute(Jedis shard, byte[][] args) {
+                        return shard.sinter(args);
+                    }
+                });
+                Map<ByteBuffer, byte[]> result = new LinkedHashMap<>();
+                putAll(result, members.get(0));
+                for (int i = 1; i < members.size() && !result.isEmpty(); i++) {
+                    Map<ByteBuffer, byte[]> shardMembers = new LinkedHashMap<>();
+                    putAll(shardMembers, members.get(i));
+                    result.keySet().retainAll(shardMembers.keySet());
+                }
+                return new LinkedHashSet<>(result.values());
+            }
+        }, true);
+    }
+
+    /**
+     * 第一个key所在分片先做sdiff，再减去其它分片上key的并集
+     */
+    @Override
+    public Set<byte[]> sdiff(final byte[]... keys) {
+        return execute(new ShardedCallBack<Set<byte[]>>() {
+            public Set<byte[]> execute(ShardedJedis shardedJedis) {
+                final List<KeyPartition> partitions = partition(shardedJedis, keys, 1);
+                List<Set<byte[]>> members = executeOnBinaryPartitions(partitions, new BinaryPartitionCallBack<Set<byte[]>>() {
+                    public Set<byte[]> execute(Jedis shard, byte[][] args) {
+                        if (shard == partitions.get(0).shard) {
+                            return shard.sdiff(args);
+                        }
+                        return shard.sunion(args);
+                    }
+                });
+                Map<ByteBuffer, byte[]> result = new LinkedHashMap<>();
+                putAll(result, members.get(0));
+                for (int i = 1; i < members.size() && !result.isEmpty(); i++) {
+                    for (byte[] member : members.get(i)) {
+                        result.remove(ByteBuffer.wrap(member));
+                    }
+                }
+                return new LinkedHashSet<>(result.values());
+            }
+        }, true);
+    }
+
+    /**
+     * byte[]按内容比较，以ByteBuffer为key合并各分片的集合
+     */
+    private static void putAll(Map<ByteBuffer, byte[]> result, Set<byte[]> members) {
+        for (byte[] member : members) {
+            result.put(ByteBuffer.wrap(member), member);
+        }
+    }
+
+    private ExecutorService getShardExecutor() {
+        if (shardExecutor == null) {
+            synchronized (this) {
+                if (shardExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(shardThreads, shardThreads, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(shardQueueSize), new NamedThreadFactory("matrix-redis-shard"),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    ownShardExecutor = true;
+                    shardExecutor = executor;
+                }
+            }
+        }
+        return shardExecutor;
+    }
+
+    /**
+     * 关闭自己创建的分片线程池，外部设置的线程池由设置方负责关闭
+     */
+    @Override
+    public void destroy() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = ownShardExecutor ? shardExecutor : null;
+            shardExecutor = null;
+            ownShardExecutor = false;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
 
     public void setRedisPool(RedisPool<ShardedJedis> redisPool) {
         this.redisPool = redisPool;
@@ -88,4 +906,33 @@ public final class MatrixRedisClient extends AbstractRedisClient{
         return redisPool;
     }
 
+    public synchronized void setShardExecutor(ExecutorService shardExecutor) {
+        this.shardExecutor = shardExecutor;
+        this.ownShardExecutor = false;
+    }
+
+    public boolean isShardRouting() {
+        return shardRouting;
+    }
+
+    public void setShardRouting(boolean shardRouting) {
+        this.shardRouting = shardRouting;
+    }
+
+    public int getShardThreads() {
+        return shardThreads;
+    }
+
+    public void setShardThreads(int shardThreads) {
+        this.shardThreads = shardThreads;
+    }
+
+    public int getShardQueueSize() {
+        return shardQueueSize;
+    }
+
+    public void setShardQueueSize(int shardQueueSize) {
+        this.shardQueueSize = shardQueueSize;
+    }
+
 }
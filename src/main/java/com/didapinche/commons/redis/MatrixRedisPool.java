@@ -1,14 +1,37 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.NodeWeights;
+import com.didapinche.commons.redis.balance.RandomSlaveBalancer;
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
+import redis.clients.util.Sharded;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RedisSentinelPool.java
+ * <p/>
+ * 路由状态保存在不可变的Topology快照中，读路径只读取volatile引用，不加锁；
+ * sentinel事件串行地构建新快照后整体替换，再关闭不再使用的连接池
+ * <p/>
+ * slave上下线只重建包含该节点的slave池，其余slave池原样沿用；被替换的池等借出的连接归还后再销毁
+ * <p/>
+ * 各分片的slave相互独立：slave池个数取各分片slave数的最大值，slave少的分片在多个池中复用slave，
+ * 没有slave的分片读master
+ * <p/>
+ * 单key命令可以先按key算出分片，再只从该节点自己的JedisPool借连接（getNodeResource），
+ * 节点连接池在第一次使用时创建，每个分片可以单独配置池大小
+ * <p/>
+ * 初始化时master池和slave池先预热minIdle个连接（warmUpMillis内）再发布；拓扑变化时，新建的连接池
+ * 只有替换的是已经有连接的池（正在承担流量）才预热，没有流量的池仍然在第一次使用时建连，不额外占用连接
  *
  * Project: redis client
  *
@@ -19,15 +42,152 @@ import java.util.*;
 public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBean {
     private static final Logger logger = LoggerFactory.getLogger(MatrixRedisPool.class);
 
+    /**
+     * 某一时刻的分片拓扑和对应的连接池，创建后不再修改
+     */
+    static final class Topology {
+        //master name -> 节点，迭代顺序即分片顺序
+        final Map<String, JedisShardInfo> masterShards;
+        final Map<String, List<JedisShardInfo>> slaveShards;
+        final Map<String, List<HostAndPort>> slaveHaps;
+
+        //直接使用ShardedJedisPool做hash
+        final ShardedJedisPool masterPool;
+        final List<SlaveRow> slaveRows;
+        final List<ShardedJedisPool> slavePools;
+
+        //与masterPool相同的hash环，用于按key定位节点
+        final Sharded<Jedis, JedisShardInfo> masterRing;
+        final Map<JedisShardInfo, String> masterNames;
+        final Map<JedisShardInfo, HostAndPort> masterNodes;
+
+        //所有在线节点（master和slave） -> master name
+        final Map<HostAndPort, String> nodeShards;
+
+        Topology(Map<String, JedisShardInfo> masterShards, ShardedJedisPool masterPool,
+                 Map<String, List<JedisShardInfo>> slaveShards, List<SlaveRow> slaveRows) {
+            this.masterShards = Collections.unmodifiableMap(new LinkedHashMap<>(masterShards));
+            this.masterPool = masterPool;
+
+            Map<String, List<JedisShardInfo>> slaves = new LinkedHashMap<>();
+            Map<String, List<HostAndPort>> haps = new HashMap<>();
+            for (Map.Entry<String, List<JedisShardInfo>> entry : slaveShards.entrySet()) {
+                List<HostAndPort> nodes = new ArrayList<>(entry.getValue().size());
+                for (JedisShardInfo shardInfo : entry.getValue()) {
+                    nodes.add(new HostAndPort(shardInfo.getHost(), shardInfo.getPort()));
+                }
+                slaves.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+                haps.put(entry.getKey(), Collections.unmodifiableList(nodes));
+            }
+            this.slaveShards = Collections.unmodifiableMap(slaves);
+            this.slaveHaps = haps;
+            this.slaveRows = Collections.unmodifiableList(new ArrayList<>(slaveRows));
+            List<ShardedJedisPool> pools = new ArrayList<>(slaveRows.size());
+            for (SlaveRow row : slaveRows) {
+                pools.add(row.pool);
+            }
+            this.slavePools = Collections.unmodifiableList(pools);
+
+            Map<JedisShardInfo, String> names = new IdentityHashMap<>();
+            Map<JedisShardInfo, HostAndPort> nodes = new IdentityHashMap<>();
+            Map<HostAndPort, String> shards = new HashMap<>();
+            for (Map.Entry<String, JedisShardInfo> entry : masterShards.entrySet()) {
+                HostAndPort node = new HostAndPort(entry.getValue().getHost(), entry.getValue().getPort());
+                names.put(entry.getValue(), entry.getKey());
+                nodes.put(entry.getValue(), node);
+                shards.put(node, entry.getKey());
+            }
+            for (Map.Entry<String, List<HostAndPort>> entry : haps.entrySet()) {
+                for (HostAndPort node : entry.getValue()) {
+                    shards.put(node, entry.getKey());
+                }
+            }
+            this.masterNames = names;
+            this.masterNodes = nodes;
+            this.nodeShards = shards;
+            this.masterRing = masterShards.isEmpty() ? null : new Sharded<Jedis, JedisShardInfo>(new ArrayList<>(masterShards.values()));
+        }
+    }
+
+    /**
+     * 一个slave池：每个master各取一个节点，顺序与master分片一致；
+     * slave较少的分片在多个slave池中复用同一个slave，没有slave的分片使用master
+     */
+    static final class SlaveRow {
+        //master name -> slave
+        final Map<String, JedisShardInfo> members;
+        final HostAndPort[] nodes;
+        final ShardedJedisPool pool;
+
+        SlaveRow(Map<String, JedisShardInfo> members, ShardedJedisPool pool) {
+            this.members = members;
+            this.pool = pool;
+            this.nodes = new HostAndPort[members.size()];
+            int i = 0;
+            for (JedisShardInfo shardInfo : members.values()) {
+                nodes[i++] = new HostAndPort(shardInfo.getHost(), shardInfo.getPort());
+            }
+        }
+
+        /**
+         * 成员（按master分片顺序）与members相同
+         */
+        boolean hasMembers(Map<String, JedisShardInfo> members) {
+            if (!new ArrayList<>(this.members.keySet()).equals(new ArrayList<>(members.keySet()))) {
+                return false;
+            }
+            for (Map.Entry<String, JedisShardInfo> member : members.entrySet()) {
+                JedisShardInfo shardInfo = this.members.get(member.getKey());
+                if (!shardInfo.getHost().equals(member.getValue().getHost())
+                        || shardInfo.getPort() != member.getValue().getPort()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final Topology EMPTY = new Topology(Collections.<String, JedisShardInfo>emptyMap(), null,
+            Collections.<String, List<JedisShardInfo>>emptyMap(), Collections.<SlaveRow>emptyList());
+
+    /**
+     * 被替换的连接池等待借出连接归还的最长时间 ms
+     */
+    private long drainMillis = 10000;
+
+    /**
+     * 新连接池发布前预热的最长时间 ms，<=0时不预热
+     */
+    private long warmUpMillis = 3000;
+
+    //重新上线slave的就绪探测
+    private ReadinessProber readinessProber = new ReadinessProber();
+
     private JedisPoolConfig jedisPoolConfig;
 
-    //主从配置信息
+    //主从配置信息，initPool时使用
     private Map<String,JedisShardInfo> masterShards = new HashMap<>();
     private Map<String,List<JedisShardInfo>> multiSlaveShards = new HashMap();
 
-    //直接使用ShardedJedisPool做hash
-    private ShardedJedisPool masterShardedJedisPool;
-    private List<ShardedJedisPool> slaveShardedJedisPools = new ArrayList<>();
+    //当前拓扑
+    private volatile Topology topology = EMPTY;
+
+    //按key读slave时的选择策略
+    private SlaveBalancer slaveBalancer = new RandomSlaveBalancer();
+
+    //节点权重，一个slave池的权重取其中节点权重的最小值
+    private NodeWeights nodeWeights = new NodeWeights();
+
+    private volatile RowWeights rowWeights;
+
+    //单个节点的连接池，按需创建
+    private final ConcurrentHashMap<HostAndPort, JedisPool> nodePools = new ConcurrentHashMap<>();
+
+    //节点连接池的默认配置，未设置时使用jedisPoolConfig
+    private JedisPoolConfig nodePoolConfig;
+
+    //按master name单独配置分片（master及其slave）的节点连接池
+    private Map<String, JedisPoolConfig> shardPoolConfigs = Collections.emptyMap();
 
 
     @Override
@@ -37,12 +197,12 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
 
     @Override
     public boolean hasSlave(){
-        return (slaveShardedJedisPools != null && slaveShardedJedisPools.size() >0);
+        return !topology.slavePools.isEmpty();
     }
 
     @Override
     public ShardedJedis getMasterResource(){
-        return masterShardedJedisPool.getResource();
+        return topology.masterPool.getResource();
     }
 
     @Override
@@ -50,15 +210,149 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
         jedis.close();
     }
 
+    /**
+     * 没有slave时取master的连接，选slave和取连接用同一个拓扑快照
+     */
     @Override
     public ShardedJedis getSlaveResource(){
+        Topology current = topology;
+        if (current.slavePools.isEmpty())
+            return current.masterPool.getResource();
+
+        int index = selectSlaveRow(current.slaveRows);
+        ShardedJedisPool pool = current.slavePools.get(index);
+
+        return pool.getResource();
+    }
+
+    /**
+     * 按权重随机选一个slave池
+     */
+    private int selectSlaveRow(List<SlaveRow> rows) {
+        int size = rows.size();
+        int[] weights = rowWeights(rows);
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        if (total <= 0) {
+            return ThreadLocalRandom.current().nextInt(size);
+        }
+
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < size; i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return i;
+            }
+        }
+        return size - 1;
+    }
+
+    /**
+     * 各slave池的权重，节点权重或slave池变化后重新计算
+     */
+    private int[] rowWeights(List<SlaveRow> rows) {
+        long version = nodeWeights.getVersion();
+        RowWeights cached = rowWeights;
+        if (cached != null && cached.rows == rows && cached.version == version) {
+            return cached.weights;
+        }
+
+        int[] weights = new int[rows.size()];
+        for (int i = 0; i < weights.length; i++) {
+            int weight = Integer.MAX_VALUE;
+            for (HostAndPort node : rows.get(i).nodes) {
+                weight = Math.min(weight, nodeWeights.get(node));
+            }
+            weights[i] = weight == Integer.MAX_VALUE ? 0 : weight;
+        }
+        rowWeights = new RowWeights(rows, version, weights);
+        return weights;
+    }
+
+    private static final class RowWeights {
+        final List<SlaveRow> rows;
+        final long version;
+        final int[] weights;
+
+        RowWeights(List<SlaveRow> rows, long version, int[] weights) {
+            this.rows = rows;
+            this.version = version;
+            this.weights = weights;
+        }
+    }
+
+
+    @Override
+    public HostAndPort getMasterHostAndPort(String key) {
+        return getMasterHostAndPort(SafeEncoder.encode(key));
+    }
+
+    @Override
+    public HostAndPort getSlaveHostAndPort(String key) {
+        return getSlaveHostAndPort(SafeEncoder.encode(key));
+    }
+
+    /**
+     * key所在分片的master
+     */
+    public HostAndPort getMasterHostAndPort(byte[] key) {
+        Topology current = topology;
+        return current.masterNodes.get(current.masterRing.getShardInfo(key));
+    }
 
-        int index = new Random().nextInt(slaveShardedJedisPools.size());
-        ShardedJedisPool pool = slaveShardedJedisPools.get(index);
+    /**
+     * 按slaveBalancer在key所在分片的slave中选一个，分片没有slave时返回null
+     */
+    public HostAndPort getSlaveHostAndPort(byte[] key) {
+        Topology current = topology;
+        JedisShardInfo shardInfo = current.masterRing.getShardInfo(key);
+        List<HostAndPort> slaves = current.slaveHaps.get(current.masterNames.get(shardInfo));
+        if (slaves != null && !slaves.isEmpty()) {
+            return slaveBalancer.select(slaves, nodeWeights);
+        }
+        return null;
+    }
 
+    /**
+     * 从节点自己的连接池借一个连接，节点已下线时抛出JedisConnectionException
+     */
+    public Jedis getNodeResource(HostAndPort node) {
+        JedisPool pool = nodePools.get(node);
+        if (pool == null) {
+            String masterName = topology.nodeShards.get(node);
+            if (masterName == null) {
+                throw new JedisConnectionException("node " + node + " is down");
+            }
+            JedisPool created = newNodePool(node, masterName);
+            pool = nodePools.putIfAbsent(node, created);
+            if (pool == null) {
+                pool = created;
+                if (!topology.nodeShards.containsKey(node)) {
+                    //创建期间节点下线
+                    nodePools.remove(node, created);
+                    created.destroy();
+                    throw new JedisConnectionException("node " + node + " is down");
+                }
+            } else {
+                created.destroy();
+            }
+        }
         return pool.getResource();
     }
 
+    private JedisPool newNodePool(HostAndPort node, String masterName) {
+        JedisPoolConfig config = shardPoolConfigs.get(masterName);
+        if (config == null) {
+            config = nodePoolConfig != null ? nodePoolConfig : jedisPoolConfig;
+        }
+        return new JedisPool(config, node.getHost(), node.getPort());
+    }
+
+    public void returnNodeResource(Jedis jedis) {
+        jedis.close();
+    }
 
     @Override
     public void returnSlaveResourceObject(ShardedJedis jedis) {
@@ -66,63 +360,270 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
     }
 
     @Override
-    public  void initPool(){
-        initMasterPool();
-
-        initSlavePool();
+    public synchronized void initPool(){
+        Topology old = topology;
+        publish(masterShards, buildMasterPool(masterShards), multiSlaveShards, Collections.<SlaveRow>emptyList(), true);
+        retire(old, topology);
     }
 
 
 
     @Override
-    public void initMasterPool() {
-        initMasterPool(new ArrayList<JedisShardInfo>(masterShards.values()));
+    public synchronized void initMasterPool() {
+        Topology old = topology;
+        Map<String, JedisShardInfo> shards = old.masterPool != null ? old.masterShards : masterShards;
+        publish(shards, buildMasterPool(shards), old.slaveShards, old.slaveRows, true);
+        retire(old, topology);
     }
 
-    private synchronized void initMasterPool(List<JedisShardInfo> masterShards) {
-        if( masterShards != null && masterShards.size() > 0) {
-            masterShardedJedisPool = new ShardedJedisPool(jedisPoolConfig,masterShards);
+    private ShardedJedisPool buildMasterPool(Map<String, JedisShardInfo> masterShards) {
+        if (masterShards == null || masterShards.isEmpty()) {
+            return null;
         }
+        return new ShardedJedisPool(jedisPoolConfig, new ArrayList<>(masterShards.values()));
     }
 
 
     @Override
-    public  void initSlavePool(){
-        initSlavePool(multiSlaveShards);
+    public synchronized void initSlavePool(){
+        Topology old = topology;
+        Map<String, List<JedisShardInfo>> slaves = old.masterPool != null ? old.slaveShards : multiSlaveShards;
+        publish(old.masterShards, old.masterPool, slaves, Collections.<SlaveRow>emptyList(), true);
+        retire(old, topology);
     }
 
+    /**
+     * 按新的主从信息发布新拓扑
+     * <p/>
+     * slave池的个数取各分片slave数的最大值，每个分片在各slave池中独立地轮流使用自己的slave，
+     * 一个分片少了slave不会减少其它分片的读容量；成员不变的slave池原样沿用。
+     * slave池中节点顺序与master分片一致，保证同一个key在master池和slave池中落在同一分片
+     *
+     * @param warmAll 初始化时为true，新建的master池和slave池都预热；拓扑变化时只预热替换了在用连接池的新池
+     */
+    private void publish(Map<String, JedisShardInfo> masterShards, ShardedJedisPool masterPool,
+                         Map<String, List<JedisShardInfo>> multiSlaveShards, List<SlaveRow> oldRows, boolean warmAll) {
+        install(prepare(topology, masterShards, masterPool, multiSlaveShards, oldRows, warmAll));
+    }
 
-    private synchronized void  initSlavePool(Map<String,List<JedisShardInfo>> multiSlaveShards) {
-        if( multiSlaveShards != null && multiSlaveShards.size() > 0) {
-            for(ShardedJedisPool pool:slaveShardedJedisPools){
-                pool.destroy();
+    /**
+     * 基于old构建新拓扑：创建新的slave池和节点连接池并预热，不修改当前拓扑，可以在锁外执行
+     */
+    private Candidate prepare(Topology old, Map<String, JedisShardInfo> masterShards, ShardedJedisPool masterPool,
+                              Map<String, List<JedisShardInfo>> multiSlaveShards, List<SlaveRow> oldRows,
+                              boolean warmAll) {
+        if (multiSlaveShards == null) {
+            multiSlaveShards = Collections.emptyMap();
+        }
+        int count = 0;
+        for (String masterName : masterShards.keySet()) {
+            List<JedisShardInfo> shardInfos = multiSlaveShards.get(masterName);
+            if (shardInfos != null) {
+                count = Math.max(count, shardInfos.size());
             }
+        }
+
+        List<Map<String, JedisShardInfo>> rowMembers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rowMembers.add(new LinkedHashMap<String, JedisShardInfo>());
+        }
+        for (Map.Entry<String, JedisShardInfo> master : masterShards.entrySet()) {
+            List<JedisShardInfo> shardInfos = multiSlaveShards.get(master.getKey());
+            JedisShardInfo[] column = assign(master.getKey(), master.getValue(),
+                    shardInfos == null ? Collections.<JedisShardInfo>emptyList() : shardInfos, oldRows, count);
+            for (int i = 0; i < count; i++) {
+                rowMembers.get(i).put(master.getKey(), column[i]);
+            }
+        }
 
-            slaveShardedJedisPools.clear();
+        List<Pool<?>> fresh = new ArrayList<>();
+        List<Pool<?>> created = new ArrayList<>();
+        if (masterPool != null && masterPool != old.masterPool && (warmAll || inUse(old.masterPool))) {
+            created.add(masterPool);
+        }
+        boolean slavesInUse = warmAll;
+        for (ShardedJedisPool pool : old.slavePools) {
+            slavesInUse |= inUse(pool);
+        }
+        List<SlaveRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, JedisShardInfo> members = rowMembers.get(i);
+            if (i < oldRows.size() && oldRows.get(i).hasMembers(members)) {
+                rows.add(oldRows.get(i));
+            } else {
+                SlaveRow row = new SlaveRow(members, new ShardedJedisPool(jedisPoolConfig, new ArrayList<>(members.values())));
+                rows.add(row);
+                fresh.add(row.pool);
+                if (slavesInUse) {
+                    created.add(row.pool);
+                }
+            }
+        }
 
+        //分片已有节点连接池在用时，才为该分片新上的节点（如切换后的master）提前建池
+        Set<String> busyShards = new HashSet<>();
+        for (Map.Entry<HostAndPort, String> node : old.nodeShards.entrySet()) {
+            if (inUse(nodePools.get(node.getKey()))) {
+                busyShards.add(node.getValue());
+            }
+        }
+        Topology current = new Topology(masterShards, masterPool, multiSlaveShards, rows);
+        Map<HostAndPort, JedisPool> nodes = new HashMap<>();
+        for (Map.Entry<HostAndPort, String> node : current.nodeShards.entrySet()) {
+            if (busyShards.contains(node.getValue()) && !nodePools.containsKey(node.getKey())) {
+                JedisPool pool = newNodePool(node.getKey(), node.getValue());
+                nodes.put(node.getKey(), pool);
+                fresh.add(pool);
+                created.add(pool);
+            }
+        }
+        if (jedisPoolConfig != null) {
+            PoolWarmer.warm(created, jedisPoolConfig.getMinIdle(), warmUpMillis);
+        }
 
-            List<JedisShardInfo> slaveShards = new ArrayList<JedisShardInfo>();
+        return new Candidate(current, nodes, fresh);
+    }
 
-            int count = Integer.MAX_VALUE;
-            for(String masterName:multiSlaveShards.keySet()) {
-                List<JedisShardInfo> shardInfos = multiSlaveShards.get(masterName);
-                count = Math.min(shardInfos.size(),count);
+    /**
+     * 发布prepare构建的拓扑，需要持有锁
+     */
+    private void install(Candidate candidate) {
+        for (Map.Entry<HostAndPort, JedisPool> node : candidate.nodePools.entrySet()) {
+            if (nodePools.putIfAbsent(node.getKey(), node.getValue()) != null) {
+                node.getValue().destroy();
             }
+        }
+        topology = candidate.topology;
+    }
 
-            for(int i = 0; i < count; i++){
-                for(String masterName:multiSlaveShards.keySet()){
-                    List<JedisShardInfo> shardInfos = multiSlaveShards.get(masterName);
+    /**
+     * 放弃prepare构建的拓扑，销毁其中新建的连接池
+     */
+    private static void discard(Candidate candidate) {
+        for (Pool<?> pool : candidate.created) {
+            pool.destroy();
+        }
+    }
 
+    /**
+     * prepare构建、尚未发布的拓扑
+     */
+    private static final class Candidate {
+        final Topology topology;
+        //新建的节点连接池，发布时放入nodePools
+        final Map<HostAndPort, JedisPool> nodePools;
+        //新建的slave池和节点连接池
+        final List<Pool<?>> created;
+
+        Candidate(Topology topology, Map<HostAndPort, JedisPool> nodePools, List<Pool<?>> created) {
+            this.topology = topology;
+            this.nodePools = nodePools;
+            this.created = created;
+        }
+    }
 
-                    JedisShardInfo shardInfo = shardInfos.get(i);
-                    slaveShards.add(shardInfo);
+    /**
+     * 连接池是否建立过连接，已关闭的池返回false
+     */
+    private static boolean inUse(Pool<?> pool) {
+        return pool != null && pool.getNumActive() + pool.getNumIdle() > 0;
+    }
+
+    /**
+     * 一个分片在各slave池中使用的节点
+     * <p/>
+     * 原来使用的slave仍然在线就沿用，空出的位置补使用次数最少的slave；
+     * 没用上的slave（新上线）替换一个被重复使用的slave；分片没有slave时使用master
+     */
+    private static JedisShardInfo[] assign(String masterName, JedisShardInfo master, List<JedisShardInfo> slaves,
+                                           List<SlaveRow> oldRows, int count) {
+        JedisShardInfo[] column = new JedisShardInfo[count];
+        if (slaves.isEmpty()) {
+            Arrays.fill(column, master);
+            return column;
+        }
+
+        int[] uses = new int[slaves.size()];
+        for (int i = 0; i < count && i < oldRows.size(); i++) {
+            JedisShardInfo member = oldRows.get(i).members.get(masterName);
+            int index = member == null ? -1 : indexOf(slaves, member);
+            if (index >= 0) {
+                column[i] = slaves.get(index);
+                uses[index]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (column[i] == null) {
+                int index = leastUsed(uses);
+                column[i] = slaves.get(index);
+                uses[index]++;
+            }
+        }
 
+        //count不小于slave数，有slave没用上时必然有slave被用了两次以上
+        for (int unused = leastUsed(uses); uses[unused] == 0; unused = leastUsed(uses)) {
+            int most = mostUsed(uses);
+            for (int i = 0; i < count; i++) {
+                if (column[i] == slaves.get(most)) {
+                    column[i] = slaves.get(unused);
+                    break;
                 }
+            }
+            uses[most]--;
+            uses[unused]++;
+        }
+        return column;
+    }
+
+    private static int leastUsed(int[] uses) {
+        int index = 0;
+        for (int i = 1; i < uses.length; i++) {
+            if (uses[i] < uses[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static int mostUsed(int[] uses) {
+        int index = 0;
+        for (int i = 1; i < uses.length; i++) {
+            if (uses[i] > uses[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
 
-                slaveShardedJedisPools.add(new ShardedJedisPool(jedisPoolConfig,slaveShards));
+    /**
+     * 平滑关闭旧拓扑中新拓扑不再使用的连接池
+     */
+    private void retire(Topology old, Topology current) {
+        for (HostAndPort node : old.nodeShards.keySet()) {
+            if (!current.nodeShards.containsKey(node)) {
+                PoolDrainer.drain(nodePools.remove(node), drainMillis);
+            }
+        }
+        if (old.masterPool != null && old.masterPool != current.masterPool) {
+            PoolDrainer.drain(old.masterPool, drainMillis);
+        }
+        for (ShardedJedisPool pool : old.slavePools) {
+            if (!current.slavePools.contains(pool)) {
+                PoolDrainer.drain(pool, drainMillis);
             }
+        }
+    }
 
+    private static int indexOf(List<JedisShardInfo> shardInfos, JedisShardInfo target) {
+        if (shardInfos != null) {
+            for (int i = 0; i < shardInfos.size(); i++) {
+                JedisShardInfo shardInfo = shardInfos.get(i);
+                if (shardInfo.getHost().equals(target.getHost()) && shardInfo.getPort() == target.getPort()) {
+                    return i;
+                }
+            }
         }
+        return -1;
     }
 
 
@@ -146,49 +647,166 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
 
 
     @Override
-    public void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
+    public synchronized void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
         buildMasterShardInfos(masterName,masterInfo);
         buildSlaveShardInfos(masterName,slaveHaps);
     }
 
+    @Override
+    public HostAndPort getMaster(String masterName) {
+        JedisShardInfo shardInfo = topology.masterShards.get(masterName);
+        return shardInfo == null ? null : new HostAndPort(shardInfo.getHost(), shardInfo.getPort());
+    }
+
+    @Override
+    public List<HostAndPort> getSlaves(String masterName) {
+        List<HostAndPort> slaves = topology.slaveHaps.get(masterName);
+        return slaves == null ? Collections.<HostAndPort>emptyList() : slaves;
+    }
+
     @Override
     public void switchMaster(String masterName, HostAndPort newMasterInfo){
-        sdownSlave(masterName,newMasterInfo);
-        buildMasterShardInfos(masterName, newMasterInfo);
-        initMasterPool(new ArrayList<JedisShardInfo>(masterShards.values()));
+        while (true) {
+            Topology old;
+            Map<String, JedisShardInfo> shards;
+            Map<String, List<JedisShardInfo>> slaves;
+            synchronized (this) {
+                //重复的切换事件
+                old = topology;
+                JedisShardInfo current = old.masterShards.get(masterName);
+                if (current != null && current.getHost().equals(newMasterInfo.getHost())
+                        && current.getPort() == newMasterInfo.getPort())
+                    return;
+
+                //新master一定是以前的slave，先从slave中去掉，与master一起发布
+                readinessProber.cancel(newMasterInfo);
+                slaves = withoutSlave(old.slaveShards, masterName, newMasterInfo);
+                shards = new LinkedHashMap<>(old.masterShards);
+                shards.put(masterName, new JedisShardInfo(newMasterInfo.getHost(), newMasterInfo.getPort()));
+            }
 
+            //在锁外建池、预热，不阻塞其它拓扑变化
+            ShardedJedisPool masterPool = buildMasterPool(shards);
+            Candidate candidate = prepare(old, shards, masterPool, slaves == null ? old.slaveShards : slaves,
+                    old.slaveRows, false);
+
+            synchronized (this) {
+                if (topology == old) {
+                    install(candidate);
+                    retire(old, topology);
+                    return;
+                }
+            }
+            //预热期间拓扑有变化，基于新拓扑重新构建
+            discard(candidate);
+            masterPool.destroy();
+        }
     }
 
     @Override
-    public void sdownSlave(String masterName,HostAndPort hostAndPort){
-        List<JedisShardInfo> slaveInfos = multiSlaveShards.get(masterName);
+    public synchronized void sdownSlave(String masterName,HostAndPort hostAndPort){
+        readinessProber.cancel(hostAndPort);
+        Topology old = topology;
+        Map<String, List<JedisShardInfo>> slaves = withoutSlave(old.slaveShards, masterName, hostAndPort);
+        if (slaves == null)
+            return;
+
+        publish(old.masterShards, old.masterPool, slaves, old.slaveRows, false);
+        retire(old, topology);
+    }
+
+    /**
+     * 去掉一个slave后的slave信息，slave不存在时返回null
+     */
+    private static Map<String, List<JedisShardInfo>> withoutSlave(Map<String, List<JedisShardInfo>> slaveShards,
+                                                                  String masterName, HostAndPort hostAndPort) {
+        List<JedisShardInfo> slaveInfos = slaveShards.get(masterName);
+        if (slaveInfos == null)
+            return null;
 
         for(JedisShardInfo shardInfo:slaveInfos ){
             if(shardInfo.getHost().equals(hostAndPort.getHost()) && shardInfo.getPort() == hostAndPort.getPort()){
-                slaveInfos.remove(shardInfo);
-                break;
+                List<JedisShardInfo> remain = new ArrayList<>(slaveInfos);
+                remain.remove(shardInfo);
+                Map<String, List<JedisShardInfo>> slaves = new LinkedHashMap<>(slaveShards);
+                slaves.put(masterName, remain);
+                return slaves;
             }
         }
-
-        initSlavePool();
+        return null;
     }
 
 
 
-    // 对应sentinel －sdown
+    // 对应sentinel －sdown，后台探测到数据加载完成、复制正常后再发布，不阻塞调用线程
     @Override
-    public void nsdownSlave(String masterName,HostAndPort hostAndPort){
-        List<JedisShardInfo> slaveInfos = multiSlaveShards.get(masterName);
+    public void nsdownSlave(final String masterName, final HostAndPort hostAndPort){
+        List<HostAndPort> slaves = topology.slaveHaps.get(masterName);
+        if (slaves != null && slaves.contains(hostAndPort))
+            return;
+
+        readinessProber.probe(hostAndPort, null, Protocol.DEFAULT_TIMEOUT, new Runnable() {
+            @Override
+            public void run() {
+                admitSlave(masterName, hostAndPort);
+            }
+        });
+    }
 
-        for(JedisShardInfo shardInfo:slaveInfos ){
+    private void admitSlave(String masterName, HostAndPort hostAndPort) {
+        while (true) {
+            Topology old;
+            Map<String, List<JedisShardInfo>> slaves;
+            synchronized (this) {
+                //探测期间又下线了
+                if (!readinessProber.isProbing(hostAndPort))
+                    return;
+
+                old = topology;
+                slaves = withSlave(old.slaveShards, masterName, hostAndPort);
+                if (slaves == null)
+                    return;
+            }
+
+            //在锁外建池、预热，不阻塞switchMaster/sdownSlave
+            Candidate candidate = prepare(old, old.masterShards, old.masterPool, slaves, old.slaveRows, false);
+
+            synchronized (this) {
+                //预热期间又下线了
+                if (!readinessProber.isProbing(hostAndPort)) {
+                    discard(candidate);
+                    return;
+                }
+                if (topology == old) {
+                    install(candidate);
+                    retire(old, topology);
+                    return;
+                }
+            }
+            //预热期间拓扑有变化，基于新拓扑重新构建
+            discard(candidate);
+        }
+    }
+
+    /**
+     * 加上一个slave后的slave信息，slave已存在时返回null
+     */
+    private static Map<String, List<JedisShardInfo>> withSlave(Map<String, List<JedisShardInfo>> slaveShards,
+                                                               String masterName, HostAndPort hostAndPort) {
+        List<JedisShardInfo> slaveInfos = slaveShards.get(masterName);
+        List<JedisShardInfo> added = slaveInfos == null ? new ArrayList<JedisShardInfo>() : new ArrayList<>(slaveInfos);
+
+        for(JedisShardInfo shardInfo:added ){
             if(shardInfo.getHost().equals(hostAndPort.getHost()) && shardInfo.getPort() == hostAndPort.getPort()){
-                return;
+                return null;
             }
         }
 
-        slaveInfos.add(new JedisShardInfo(hostAndPort.getHost(),hostAndPort.getPort()));
+        added.add(new JedisShardInfo(hostAndPort.getHost(),hostAndPort.getPort()));
 
-        initSlavePool();
+        Map<String, List<JedisShardInfo>> slaves = new LinkedHashMap<>(slaveShards);
+        slaves.put(masterName, added);
+        return slaves;
     }
 
 
@@ -198,16 +816,24 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
         this.jedisPoolConfig = jedisPoolConfig;
     }
 
+    /**
+     * 当前master分片（只读快照），未初始化时返回配置值
+     */
     public Map<String, JedisShardInfo> getMasterShards() {
-        return masterShards;
+        Topology current = topology;
+        return current.masterPool != null ? current.masterShards : masterShards;
     }
 
     public void setMasterShards(Map<String, JedisShardInfo> masterShards) {
         this.masterShards = masterShards;
     }
 
+    /**
+     * 当前slave分片（只读快照），未初始化时返回配置值
+     */
     public Map<String, List<JedisShardInfo>> getMultiSlaveShards() {
-        return multiSlaveShards;
+        Topology current = topology;
+        return current.masterPool != null ? current.slaveShards : multiSlaveShards;
     }
 
     public void setMultiSlaveShards(Map<String, List<JedisShardInfo>> multiSlaveShards) {
@@ -215,18 +841,68 @@ public class MatrixRedisPool implements RedisPool<ShardedJedis>, InitializingBea
     }
 
     public ShardedJedisPool getMasterShardedJedisPool() {
-        return masterShardedJedisPool;
+        return topology.masterPool;
     }
 
-    public void setMasterShardedJedisPool(ShardedJedisPool masterShardedJedisPool) {
-        this.masterShardedJedisPool = masterShardedJedisPool;
+    public List<ShardedJedisPool> getSlaveShardedJedisPools() {
+        return topology.slavePools;
     }
 
-    public List<ShardedJedisPool> getSlaveShardedJedisPools() {
-        return slaveShardedJedisPools;
+    @Override
+    public NodeWeights getNodeWeights() {
+        return nodeWeights;
+    }
+
+    public void setNodeWeights(NodeWeights nodeWeights) {
+        this.nodeWeights = nodeWeights;
+    }
+
+    @Override
+    public SlaveBalancer getSlaveBalancer() {
+        return slaveBalancer;
+    }
+
+    public void setSlaveBalancer(SlaveBalancer slaveBalancer) {
+        this.slaveBalancer = slaveBalancer;
+    }
+
+    public JedisPoolConfig getNodePoolConfig() {
+        return nodePoolConfig;
+    }
+
+    public void setNodePoolConfig(JedisPoolConfig nodePoolConfig) {
+        this.nodePoolConfig = nodePoolConfig;
+    }
+
+    public Map<String, JedisPoolConfig> getShardPoolConfigs() {
+        return shardPoolConfigs;
+    }
+
+    public void setShardPoolConfigs(Map<String, JedisPoolConfig> shardPoolConfigs) {
+        this.shardPoolConfigs = shardPoolConfigs;
+    }
+
+    public ReadinessProber getReadinessProber() {
+        return readinessProber;
+    }
+
+    public void setReadinessProber(ReadinessProber readinessProber) {
+        this.readinessProber = readinessProber;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    public void setWarmUpMillis(long warmUpMillis) {
+        this.warmUpMillis = warmUpMillis;
+    }
+
+    public long getDrainMillis() {
+        return drainMillis;
     }
 
-    public void setSlaveShardedJedisPools(List<ShardedJedisPool> slaveShardedJedisPools) {
-        this.slaveShardedJedisPools = slaveShardedJedisPools;
+    public void setDrainMillis(long drainMillis) {
+        this.drainMillis = drainMillis;
     }
 }
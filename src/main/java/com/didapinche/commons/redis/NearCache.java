@@ -0,0 +1,361 @@
+package com.didapinche.commons.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 客户端本地缓存，缓存白名单内key的get/hget/hgetAll结果
+ * <p/>
+ * 按key分段，每段是一个访问有序的LinkedHashMap，超过容量淘汰最久未访问的key（近似LRU）；
+ * 缓存时间取ttl和redis中剩余过期时间的较小值；未命中时从master加载，不会缓存从库复制延时期间的旧值。
+ * 本客户端的写命令立即失效本地缓存并通过channel通知其他JVM
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class NearCache {
+
+    /**
+     * 未命中
+     */
+    static final Object MISS = new Object();
+
+    private static final Object NULL = new Object();
+
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 一个redis key的缓存，get、hget、hgetAll的结果分开存放
+     */
+    private static final class Entry {
+        final long expireAt;
+        Object value = MISS;
+        Map<String, String> hash;
+        Map<String, Object> fields;
+
+        Entry(long expireAt) {
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 每次失效加一，加载前后不一致说明期间有写入，结果不能缓存
+         */
+        long generation = 0;
+
+        Segment() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > Math.max(maxSize / SEGMENTS, 1)) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 最多缓存的key数
+     */
+    private int maxSize = 10000;
+
+    /**
+     * 缓存时间 ms
+     */
+    private long ttlMillis = 60000;
+
+    /**
+     * key白名单，支持*和?通配
+     */
+    private List<String> keyPatterns = Collections.emptyList();
+
+    /**
+     * 失效通知channel
+     */
+    private String channel = "__near_cache_invalidation__";
+
+    private volatile Pattern[] patterns = new Pattern[0];
+
+    private final String id = UUID.randomUUID().toString();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public NearCache() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * key是否在白名单内
+     */
+    public boolean isCacheable(String key) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(key).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Object get(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = live(segment, key);
+            return count(entry == null ? MISS : unwrap(entry.value));
+        }
+    }
+
+    Object hget(String key, String field) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = live(segment, key);
+            if (entry == null) {
+                return count(MISS);
+            }
+            if (entry.hash != null) {
+                return count(entry.hash.get(field));
+            }
+            return count(entry.fields == null || !entry.fields.containsKey(field) ? MISS : unwrap(entry.fields.get(field)));
+        }
+    }
+
+    Object hgetAll(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = live(segment, key);
+            return count(entry == null || entry.hash == null ? MISS : entry.hash);
+        }
+    }
+
+    /**
+     * 加载前取得的版本，put时用来判断期间是否有写入
+     */
+    long stamp(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            return segment.generation;
+        }
+    }
+
+    void putValue(String key, String value, Long ttlSeconds, long stamp) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = entry(segment, key, ttlSeconds, stamp);
+            if (entry != null) {
+                entry.value = value == null ? NULL : value;
+            }
+        }
+    }
+
+    void putField(String key, String field, String value, Long ttlSeconds, long stamp) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = entry(segment, key, ttlSeconds, stamp);
+            if (entry != null && entry.hash == null) {
+                if (entry.fields == null) {
+                    entry.fields = new HashMap<>();
+                }
+                entry.fields.put(field, value == null ? NULL : value);
+            }
+        }
+    }
+
+    void putHash(String key, Map<String, String> hash, Long ttlSeconds, long stamp) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = entry(segment, key, ttlSeconds, stamp);
+            if (entry != null) {
+                entry.hash = Collections.unmodifiableMap(new HashMap<>(hash));
+                entry.fields = null;
+            }
+        }
+    }
+
+    /**
+     * 失效本地缓存
+     */
+    public void invalidate(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.generation++;
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * 清空本地缓存，订阅断开重连后调用，期间的失效通知可能已经丢失
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 发给其他JVM的失效消息，带上本实例id以便忽略自己发出的消息
+     */
+    String invalidationMessage(String key) {
+        return id + ":" + key;
+    }
+
+    /**
+     * 处理失效消息，自己发出的返回false
+     */
+    boolean onInvalidation(String message) {
+        int index = message.indexOf(':');
+        if (index < 0 || message.substring(0, index).equals(id)) {
+            return false;
+        }
+        invalidate(message.substring(index + 1));
+        return true;
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private Entry live(Segment segment, String key) {
+        Entry entry = segment.get(key);
+        if (entry != null && entry.expireAt - System.nanoTime() <= 0) {
+            segment.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 取得或新建key的缓存，期间有写入或key已经不在redis中时返回null
+     */
+    private Entry entry(Segment segment, String key, Long ttlSeconds, long stamp) {
+        if (segment.generation != stamp) {
+            return null;
+        }
+        Entry entry = live(segment, key);
+        if (entry == null) {
+            long ttl = ttlMillis;
+            if (ttlSeconds != null && ttlSeconds >= 0) {
+                ttl = Math.min(ttl, TimeUnit.SECONDS.toMillis(ttlSeconds));
+            }
+            if (ttl <= 0) {
+                return null;
+            }
+            entry = new Entry(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+            segment.put(key, entry);
+        }
+        return entry;
+    }
+
+    private Object count(Object value) {
+        if (value == MISS) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NULL ? null : value;
+    }
+
+    private static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public List<String> getKeyPatterns() {
+        return keyPatterns;
+    }
+
+    public void setKeyPatterns(List<String> keyPatterns) {
+        List<Pattern> compiled = new ArrayList<>(keyPatterns.size());
+        for (String keyPattern : keyPatterns) {
+            compiled.add(compile(keyPattern));
+        }
+        this.keyPatterns = keyPatterns;
+        this.patterns = compiled.toArray(new Pattern[compiled.size()]);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+}
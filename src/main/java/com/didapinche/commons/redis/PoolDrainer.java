@@ -0,0 +1,67 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.util.Pool;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 平滑关闭被替换下来的连接池：等借出的连接全部归还（或超过等待时间）后再销毁，
+ * 避免拓扑变化时正在执行的命令因连接池被关闭而失败
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public final class PoolDrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolDrainer.class);
+
+    private static final long CHECK_INTERVAL_MILLIS = 100;
+
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-pool-drainer"));
+
+    private PoolDrainer() {
+    }
+
+    /**
+     * 等待最多drainMillis后销毁连接池，drainMillis<=0时立即销毁
+     */
+    public static void drain(final Pool<?> pool, long drainMillis) {
+        if (pool == null) {
+            return;
+        }
+        if (drainMillis <= 0) {
+            destroy(pool);
+            return;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainMillis);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (pool.getNumActive() > 0 && System.nanoTime() < deadline) {
+                    scheduler.schedule(this, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if (pool.getNumActive() > 0) {
+                    logger.warn("destroy the replaced pool with " + pool.getNumActive() + " connections still in use");
+                }
+                destroy(pool);
+            }
+        }, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void destroy(Pool<?> pool) {
+        try {
+            pool.destroy();
+        } catch (Exception e) {
+            logger.error("occur exception while destroy the replaced pool", e);
+        }
+    }
+}
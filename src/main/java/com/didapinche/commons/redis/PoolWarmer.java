@@ -0,0 +1,117 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.util.Pool;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池预热：新建的连接池发布前，并行地建立minIdle个连接（connect + AUTH）并PING验证，
+ * 之后作为空闲连接留在池中，避免启动或切换后的第一批请求承担建连延时
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public final class PoolWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolWarmer.class);
+
+    //预热期间每个连接占用一个线程，空闲60s后回收
+    private static final ExecutorService executor =
+            Executors.newCachedThreadPool(new NamedThreadFactory("redis-pool-warmer"));
+
+    private PoolWarmer() {
+    }
+
+    /**
+     * 为每个连接池并行建立connections个连接，最多等待timeoutMillis
+     *
+     * @return 截止时间前全部连接建立并验证成功返回true
+     */
+    public static boolean warm(Collection<? extends Pool<?>> pools, int connections, long timeoutMillis) {
+        if (pools.isEmpty() || connections <= 0 || timeoutMillis <= 0) {
+            return true;
+        }
+
+        final CountDownLatch ready = new CountDownLatch(pools.size() * connections);
+        //所有连接同时借出，保证建立的是不同的连接
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger failed = new AtomicInteger();
+        for (final Pool<?> pool : pools) {
+            for (int i = 0; i < connections; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        warm(pool, ready, release, failed);
+                    }
+                });
+            }
+        }
+
+        boolean done;
+        try {
+            done = ready.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done = false;
+        } finally {
+            release.countDown();
+        }
+
+        if (!done) {
+            logger.warn("pool warm-up not finished in " + timeoutMillis + "ms, publish the pools anyway");
+        } else if (failed.get() > 0) {
+            logger.warn(failed.get() + " connections failed to warm up");
+        }
+        return done && failed.get() == 0;
+    }
+
+    private static void warm(Pool<?> pool, CountDownLatch ready, CountDownLatch release, AtomicInteger failed) {
+        Object resource = null;
+        try {
+            resource = pool.getResource();
+            ping(resource);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("occur exception while warm up pool: " + e.getMessage());
+        } finally {
+            ready.countDown();
+        }
+        if (resource == null) {
+            return;
+        }
+
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            //连接异常时close会作为broken归还
+            ((Closeable) resource).close();
+        } catch (Exception e) {
+            logger.warn("occur exception while return warm-up connection: " + e.getMessage());
+        }
+    }
+
+    private static void ping(Object resource) {
+        if (resource instanceof ShardedJedis) {
+            for (Jedis jedis : ((ShardedJedis) resource).getAllShards()) {
+                jedis.ping();
+            }
+        } else if (resource instanceof Jedis) {
+            ((Jedis) resource).ping();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 跨线程合并读请求
+ * <p/>
+ * 时间窗口内并发到达的get合并成一次mget，hget合并成一个pipeline，结果再分发给各个等待的线程。
+ * 第一个到达的线程作为leader等待窗口结束（或攒满maxBatchSize）后负责发送，其它线程只等待结果。
+ * <p/>
+ * 合并后的get对非string类型的key返回null（mget的语义），不像单独执行get那样抛出RedisClientException；
+ * hget类型错误时与单独执行hget一样抛出RedisClientException。
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+class ReadCoalescer {
+
+    /**
+     * 一次等待中的读
+     */
+    private static class PendingRead {
+        final String key;
+        /**
+         * 为null时是get，否则是hget
+         */
+        final String field;
+
+        private String value;
+        private RuntimeException exception;
+        private boolean done = false;
+
+        PendingRead(String key, String field) {
+            this.key = key;
+            this.field = field;
+        }
+
+        synchronized void complete(String value) {
+            if (done) {
+                return;
+            }
+            this.value = value;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void fail(RuntimeException exception) {
+            if (done) {
+                return;
+            }
+            this.exception = exception;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized String await() {
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (exception != null) {
+                throw exception;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 一批待合并的读
+     */
+    private static class Batch {
+        final Thread leader = Thread.currentThread();
+        final List<PendingRead> reads = new ArrayList<>();
+        boolean sealed = false;
+    }
+
+    private final AbstractRedisClient client;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+
+    private Batch current;
+
+    ReadCoalescer(AbstractRedisClient client, long windowMicros, int maxBatchSize) {
+        this.client = client;
+        this.windowNanos = windowMicros * 1000L;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    String get(String key) {
+        return read(new PendingRead(key, null));
+    }
+
+    String hget(String key, String field) {
+        return read(new PendingRead(key, field));
+    }
+
+    private String read(PendingRead read) {
+        Batch batch;
+        boolean leader = false;
+
+        synchronized (lock) {
+            if (current == null) {
+                current = new Batch();
+                leader = true;
+            }
+            batch = current;
+            batch.reads.add(read);
+            if (batch.reads.size() >= maxBatchSize) {
+                //攒满了，提前唤醒leader
+                batch.sealed = true;
+                current = null;
+                if (!leader) {
+                    LockSupport.unpark(batch.leader);
+                }
+            }
+        }
+
+        if (leader) {
+            long deadline = System.nanoTime() + windowNanos;
+            while (true) {
+                long remain;
+                synchronized (lock) {
+                    remain = deadline - System.nanoTime();
+                    if (!batch.sealed && remain <= 0) {
+                        batch.sealed = true;
+                        if (current == batch) {
+                            current = null;
+                        }
+                    }
+                    if (batch.sealed) {
+                        break;
+                    }
+                }
+                LockSupport.parkNanos(this, remain);
+            }
+            flush(batch.reads);
+        }
+
+        return read.await();
+    }
+
+    private void flush(List<PendingRead> reads) {
+        Map<String, List<PendingRead>> gets = new LinkedHashMap<>();
+        List<PendingRead> hgets = new ArrayList<>();
+        for (PendingRead read : reads) {
+            if (read.field == null) {
+                List<PendingRead> sameKey = gets.get(read.key);
+                if (sameKey == null) {
+                    sameKey = new ArrayList<>();
+                    gets.put(read.key, sameKey);
+                }
+                sameKey.add(read);
+            } else {
+                hgets.add(read);
+            }
+        }
+
+        if (!gets.isEmpty()) {
+            try {
+                List<String> keys = new ArrayList<>(gets.keySet());
+                List<String> values = client.coalescedMget(keys.toArray(new String[keys.size()]));
+                for (int i = 0; i < keys.size(); i++) {
+                    for (PendingRead read : gets.get(keys.get(i))) {
+                        read.complete(values.get(i));
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (List<PendingRead> sameKey : gets.values()) {
+                    for (PendingRead read : sameKey) {
+                        read.fail(e);
+                    }
+                }
+            }
+        }
+
+        if (!hgets.isEmpty()) {
+            try {
+                RedisBatch batch = client.batch();
+                List<BatchResponse<String>> responses = new ArrayList<>(hgets.size());
+                for (PendingRead read : hgets) {
+                    responses.add(batch.hget(read.key, read.field));
+                }
+                batch.execute();
+                for (int i = 0; i < hgets.size(); i++) {
+                    try {
+                        hgets.get(i).complete(responses.get(i).get());
+                    } catch (JedisDataException e) {
+                        //与单独执行hget一样抛出RedisClientException
+                        hgets.get(i).fail(new RedisClientException(e.getMessage()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (PendingRead read : hgets) {
+                    read.fail(e);
+                }
+            }
+        }
+
+        //兜底，防止有线程一直等待
+        for (PendingRead read : reads) {
+            synchronized (read) {
+                if (!read.done) {
+                    read.fail(new RedisClientException("coalesced read has not been answered"));
+                }
+            }
+        }
+    }
+}
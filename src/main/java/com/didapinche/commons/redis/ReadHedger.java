@@ -0,0 +1,314 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲读：读请求在阈值时间内没有返回时，向另一个节点再发一次，先返回的结果生效
+ * <p/>
+ * 阈值取该命令最近耗时的分位数（默认p95）；额外请求数受预算限制，
+ * 每个读请求积累ratio个令牌，对冲一次消耗一个令牌，故障期间不会成倍放大负载
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class ReadHedger {
+
+    /**
+     * 令牌的定点精度
+     */
+    private static final long TOKEN = 1000;
+
+    private static final int WINDOW = 1024;
+
+    /**
+     * 单个命令的耗时窗口
+     */
+    private final class Latency {
+        private final long[] samples = new long[WINDOW];
+        private long count = 0;
+        private volatile long thresholdNanos = Long.MAX_VALUE;
+
+        synchronized void record(long nanos) {
+            samples[(int) (count % WINDOW)] = nanos;
+            count++;
+            if (count >= minSamples && count % (WINDOW / 8) == 0) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                long quantile = sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * percentile))];
+                thresholdNanos = Math.max(quantile, TimeUnit.MILLISECONDS.toNanos(minDelayMillis));
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Latency> latencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private volatile ExecutorService executor;
+
+    /**
+     * 对冲的命令
+     */
+    private Set<String> commands = new HashSet<>(Arrays.asList("GET", "HGET", "HMGET"));
+
+    /**
+     * 阈值分位数
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 阈值下限 ms
+     */
+    private long minDelayMillis = 1;
+
+    /**
+     * 样本数达到后才开始对冲
+     */
+    private int minSamples = 100;
+
+    /**
+     * 额外请求占比上限
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * 最多积累的令牌数，限制空闲后的突发对冲
+     */
+    private int maxTokens = 10;
+
+    /**
+     * 执行读请求的线程数上限，满了不对冲
+     */
+    private int threads = 64;
+
+    public boolean isHedged(String command) {
+        return commands.contains(command);
+    }
+
+    /**
+     * 样本数已足够算出阈值，之前的读不交给对冲线程，由调用方直接执行并record耗时
+     */
+    public boolean isReady(String command) {
+        Latency latency = latencies.get(command);
+        return latency != null && latency.thresholdNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * 记录一次未经过对冲的读耗时
+     */
+    public void record(String command, long latencyNanos) {
+        deposit();
+        latency(command).record(latencyNanos);
+    }
+
+    /**
+     * primary超过阈值未返回且预算充足时执行backup，返回先成功的结果；都失败时抛出最后一个异常
+     * <p/>
+     * 预算不足时不可能对冲，primary直接在调用线程上执行
+     */
+    <T> T execute(String command, Callable<T> primary, Callable<T> backup) throws Exception {
+        deposit();
+        Latency latency = latency(command);
+        if (latency.thresholdNanos == Long.MAX_VALUE || tokens.get() < TOKEN) {
+            return timed(latency, primary).call();
+        }
+        ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(getExecutor());
+        try {
+            completionService.submit(timed(latency, primary));
+        } catch (RejectedExecutionException e) {
+            return primary.call();
+        }
+
+        int pending = 1;
+        Future<T> done = completionService.poll(latency.thresholdNanos, TimeUnit.NANOSECONDS);
+        if (done == null && withdraw()) {
+            try {
+                completionService.submit(timed(latency, backup));
+                pending++;
+                hedges.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                tokens.addAndGet(TOKEN);
+            }
+        }
+
+        while (true) {
+            if (done == null) {
+                done = completionService.take();
+            }
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                if (--pending == 0) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw new RedisClientException(cause.getMessage());
+                }
+                done = null;
+            }
+        }
+    }
+
+    private <T> Callable<T> timed(final Latency latency, final Callable<T> call) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                long start = System.nanoTime();
+                T result = call.call();
+                latency.record(System.nanoTime() - start);
+                return result;
+            }
+        };
+    }
+
+    private Latency latency(String command) {
+        Latency latency = latencies.get(command);
+        if (latency == null) {
+            Latency created = new Latency();
+            latency = latencies.putIfAbsent(command, created);
+            if (latency == null) {
+                latency = created;
+            }
+        }
+        return latency;
+    }
+
+    private void deposit() {
+        long max = maxTokens * TOKEN;
+        long deposit = (long) (budgetRatio * TOKEN);
+        while (true) {
+            long current = tokens.get();
+            if (current >= max || tokens.compareAndSet(current, Math.min(max, current + deposit))) {
+                return;
+            }
+        }
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(), new NamedThreadFactory("redis-hedge"));
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 命令当前的对冲阈值 ms，样本不足时返回-1
+     */
+    public double getThresholdMillis(String command) {
+        Latency latency = latencies.get(command);
+        if (latency == null || latency.thresholdNanos == Long.MAX_VALUE) {
+            return -1;
+        }
+        return latency.thresholdNanos / 1e6;
+    }
+
+    /**
+     * 已发出的对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public Set<String> getCommands() {
+        return commands;
+    }
+
+    public void setCommands(Set<String> commands) {
+        this.commands = new HashSet<>(commands);
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    public void setMinDelayMillis(long minDelayMillis) {
+        this.minDelayMillis = minDelayMillis;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+}
@@ -0,0 +1,186 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重新上线的slave就绪探测
+ * <p/>
+ * 在后台线程中用INFO检查节点是否加载完数据（loading:0）、与master的复制是否已建立（master_link_status:up），
+ * 未就绪时按指数退避重试，就绪后回调onReady；探测期间不占用sentinel监听线程，也不阻塞其它拓扑变化
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class ReadinessProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadinessProber.class);
+
+    private static final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, new NamedThreadFactory("redis-readiness-prober"));
+
+    /**
+     * 第一次重试的间隔 ms，之后每次翻倍
+     */
+    private long initialDelayMillis = 100;
+
+    /**
+     * 重试间隔上限 ms
+     */
+    private long maxDelayMillis = 5000;
+
+    /**
+     * 超过这个时间仍未就绪则放弃 ms，等待sentinel再次通知
+     */
+    private long maxProbeMillis = 300000;
+
+    //正在探测的节点
+    private final ConcurrentHashMap<HostAndPort, Probe> probes = new ConcurrentHashMap<>();
+
+    /**
+     * 开始探测节点，节点已在探测中时忽略
+     */
+    public void probe(HostAndPort node, String password, int timeout, Runnable onReady) {
+        Probe probe = new Probe(node, password, timeout, onReady);
+        if (probes.putIfAbsent(node, probe) == null) {
+            scheduler.execute(probe);
+        }
+    }
+
+    /**
+     * 停止探测节点（节点再次下线）
+     */
+    public void cancel(HostAndPort node) {
+        probes.remove(node);
+    }
+
+    /**
+     * 节点是否在探测中，onReady执行期间仍返回true
+     */
+    public boolean isProbing(HostAndPort node) {
+        return probes.containsKey(node);
+    }
+
+    /**
+     * 连接节点执行INFO判断是否就绪，连接失败视为未就绪
+     */
+    public static boolean isReady(HostAndPort node, String password, int timeout) {
+        Jedis jedis = new Jedis(node.getHost(), node.getPort(), timeout);
+        try {
+            if (password != null) {
+                jedis.auth(password);
+            }
+            return isReady(jedis.info());
+        } catch (JedisException e) {
+            logger.debug("probe " + node + " failed: " + e.getMessage());
+            return false;
+        } finally {
+            jedis.close();
+        }
+    }
+
+    /**
+     * 根据INFO的输出判断：数据加载完成，且作为slave时与master的复制连接正常
+     */
+    static boolean isReady(String info) {
+        String loading = null;
+        String role = null;
+        String linkStatus = null;
+        for (String line : info.split("\r\n")) {
+            int index = line.indexOf(':');
+            if (index < 0) {
+                continue;
+            }
+            String name = line.substring(0, index);
+            String value = line.substring(index + 1).trim();
+            if ("loading".equals(name)) {
+                loading = value;
+            } else if ("role".equals(name)) {
+                role = value;
+            } else if ("master_link_status".equals(name)) {
+                linkStatus = value;
+            }
+        }
+        if (loading != null && !"0".equals(loading)) {
+            return false;
+        }
+        return !"slave".equals(role) || "up".equals(linkStatus);
+    }
+
+    private final class Probe implements Runnable {
+        final HostAndPort node;
+        final String password;
+        final int timeout;
+        final Runnable onReady;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxProbeMillis);
+        long delay = initialDelayMillis;
+
+        Probe(HostAndPort node, String password, int timeout, Runnable onReady) {
+            this.node = node;
+            this.password = password;
+            this.timeout = timeout;
+            this.onReady = onReady;
+        }
+
+        @Override
+        public void run() {
+            //已取消
+            if (probes.get(node) != this) {
+                return;
+            }
+
+            if (isReady(node, password, timeout)) {
+                try {
+                    onReady.run();
+                } catch (Exception e) {
+                    logger.error("occur exception while admit " + node, e);
+                } finally {
+                    probes.remove(node, this);
+                }
+                return;
+            }
+
+            if (System.nanoTime() >= deadline) {
+                probes.remove(node, this);
+                logger.warn(node + " not ready in " + maxProbeMillis + "ms, give up");
+                return;
+            }
+            scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            delay = Math.min(delay * 2, maxDelayMillis);
+        }
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public void setInitialDelayMillis(long initialDelayMillis) {
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public long getMaxProbeMillis() {
+        return maxProbeMillis;
+    }
+
+    public void setMaxProbeMillis(long maxProbeMillis) {
+        this.maxProbeMillis = maxProbeMillis;
+    }
+}
@@ -0,0 +1,396 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import redis.clients.jedis.RedisPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量命令，先在本地排队，execute时通过一次 pipeline 发送，减少 RTT 和连接池借还次数
+ * <p/>
+ * 全部是只读命令时按读写分离规则走slave，否则走master
+ * <p/>
+ * <pre>
+ * RedisBatch batch = client.batch();
+ * BatchResponse&lt;String&gt; name = batch.get("name");
+ * BatchResponse&lt;Long&gt; age = batch.hincrBy("user", "age", 1);
+ * batch.execute();
+ * name.get();
+ * </pre>
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RedisBatch {
+
+    /**
+     * 排队到pipeline中的命令
+     */
+    public static interface PipelineCallBack<T> {
+        Response<T> execute(RedisPipeline pipeline);
+    }
+
+    /**
+     * 一条排队中的命令
+     */
+    static class Command<T> {
+        final String key;
+        final boolean readonly;
+        final PipelineCallBack<T> callBack;
+        final BatchResponse<T> response = new BatchResponse<>();
+
+        Command(String key, boolean readonly, PipelineCallBack<T> callBack) {
+            this.key = key;
+            this.readonly = readonly;
+            this.callBack = callBack;
+        }
+
+        Response<T> queue(RedisPipeline pipeline) {
+            return callBack.execute(pipeline);
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Response<?> result) {
+            try {
+                response.set(((Response<T>) result).get());
+            } catch (JedisDataException e) {
+                response.setException(e);
+            }
+        }
+    }
+
+    private final AbstractRedisClient client;
+
+    private final List<Command<?>> commands = new ArrayList<>();
+
+    private boolean executed = false;
+
+    /**
+     * 只读命令也在master上执行
+     */
+    private boolean readFromMaster = false;
+
+    RedisBatch(AbstractRedisClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 只读批量也发给master，需要读到刚写入的数据时使用（从库可能有复制延时）
+     */
+    public RedisBatch readFromMaster() {
+        this.readFromMaster = true;
+        return this;
+    }
+
+    public boolean isReadFromMaster() {
+        return readFromMaster;
+    }
+
+    /**
+     * 排队任意一条命令
+     *
+     * @param key      命令操作的key，分片部署下据此路由
+     * @param readonly 是否只读命令
+     */
+    public <T> BatchResponse<T> queue(String key, boolean readonly, PipelineCallBack<T> callBack) {
+        if (executed) {
+            throw new RedisClientException("the batch has been executed");
+        }
+        Command<T> command = new Command<>(key, readonly, callBack);
+        commands.add(command);
+        return command.response;
+    }
+
+    /**
+     * 通过一次pipeline执行所有排队中的命令
+     */
+    public void execute() {
+        if (executed) {
+            throw new RedisClientException("the batch has been executed");
+        }
+        executed = true;
+        if (commands.isEmpty()) {
+            return;
+        }
+        client.execute(this, 0);
+
+        for (Command<?> command : commands) {
+            if (!command.readonly) {
+                client.afterWrite(command.key, null);
+            }
+        }
+    }
+
+    /**
+     * 是否全部是只读命令
+     */
+    public boolean isReadonly() {
+        for (Command<?> command : commands) {
+            if (!command.readonly) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    List<Command<?>> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    /**
+     * 把所有命令写入pipeline，返回的Response和命令一一对应
+     */
+    static List<Response<?>> queueAll(List<Command<?>> commands, RedisPipeline pipeline) {
+        List<Response<?>> responses = new ArrayList<>(commands.size());
+        for (Command<?> command : commands) {
+            responses.add(command.queue(pipeline));
+        }
+        return responses;
+    }
+
+    /**
+     * pipeline sync之后回填结果
+     */
+    static void completeAll(List<Command<?>> commands, List<Response<?>> responses) {
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).complete(responses.get(i));
+        }
+    }
+
+    /* jedis Commands*/
+
+    public BatchResponse<String> set(final String key, final String value) {
+        return queue(key, false, new PipelineCallBack<String>() {
+            public Response<String> execute(RedisPipeline pipeline) {
+                return pipeline.set(key, value);
+            }
+        });
+    }
+
+    public BatchResponse<String> setex(final String key, final int seconds, final String value) {
+        return queue(key, false, new PipelineCallBack<String>() {
+            public Response<String> execute(RedisPipeline pipeline) {
+                return pipeline.setex(key, seconds, value);
+            }
+        });
+    }
+
+    public BatchResponse<String> get(final String key) {
+        return queue(key, true, new PipelineCallBack<String>() {
+            public Response<String> execute(RedisPipeline pipeline) {
+                return pipeline.get(key);
+            }
+        });
+    }
+
+    public BatchResponse<Boolean> exists(final String key) {
+        return queue(key, true, new PipelineCallBack<Boolean>() {
+            public Response<Boolean> execute(RedisPipeline pipeline) {
+                return pipeline.exists(key);
+            }
+        });
+    }
+
+    public BatchResponse<Long> del(final String key) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.del(key);
+            }
+        });
+    }
+
+    public BatchResponse<Long> expire(final String key, final int seconds) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.expire(key, seconds);
+            }
+        });
+    }
+
+    public BatchResponse<Long> ttl(final String key) {
+        return queue(key, true, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.ttl(key);
+            }
+        });
+    }
+
+    public BatchResponse<Long> incr(final String key) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.incr(key);
+            }
+        });
+    }
+
+    public BatchResponse<Long> incrBy(final String key, final long integer) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.incrBy(key, integer);
+            }
+        });
+    }
+
+    public BatchResponse<Long> hset(final String key, final String field, final String value) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.hset(key, field, value);
+            }
+        });
+    }
+
+    public BatchResponse<String> hget(final String key, final String field) {
+        return queue(key, true, new PipelineCallBack<String>() {
+            public Response<String> execute(RedisPipeline pipeline) {
+                return pipeline.hget(key, field);
+            }
+        });
+    }
+
+    public BatchResponse<String> hmset(final String key, final Map<String, String> hash) {
+        return queue(key, false, new PipelineCallBack<String>() {
+            public Response<String> execute(RedisPipeline pipeline) {
+                return pipeline.hmset(key, hash);
+            }
+        });
+    }
+
+    public BatchResponse<List<String>> hmget(final String key, final String... fields) {
+        return queue(key, true, new PipelineCallBack<List<String>>() {
+            public Response<List<String>> execute(RedisPipeline pipeline) {
+                return pipeline.hmget(key, fields);
+            }
+        });
+    }
+
+    public BatchResponse<Map<String, String>> hgetAll(final String key) {
+        return queue(key, true, new PipelineCallBack<Map<String, String>>() {
+            public Response<Map<String, String>> execute(RedisPipeline pipeline) {
+                return pipeline.hgetAll(key);
+            }
+        });
+    }
+
+    public BatchResponse<Long> hincrBy(final String key, final String field, final long value) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.hincrBy(key, field, value);
+            }
+        });
+    }
+
+    public BatchResponse<Long> hdel(final String key, final String... field) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.hdel(key, field);
+            }
+        });
+    }
+
+    public BatchResponse<Long> lpush(final String key, final String... string) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.lpush(key, string);
+            }
+        });
+    }
+
+    public BatchResponse<Long> rpush(final String key, final String... string) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.rpush(key, string);
+            }
+        });
+    }
+
+    public BatchResponse<List<String>> lrange(final String key, final long start, final long end) {
+        return queue(key, true, new PipelineCallBack<List<String>>() {
+            public Response<List<String>> execute(RedisPipeline pipeline) {
+                return pipeline.lrange(key, start, end);
+            }
+        });
+    }
+
+    public BatchResponse<Long> sadd(final String key, final String... member) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.sadd(key, member);
+            }
+        });
+    }
+
+    public BatchResponse<Long> srem(final String key, final String... member) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.srem(key, member);
+            }
+        });
+    }
+
+    public BatchResponse<Set<String>> smembers(final String key) {
+        return queue(key, true, new PipelineCallBack<Set<String>>() {
+            public Response<Set<String>> execute(RedisPipeline pipeline) {
+                return pipeline.smembers(key);
+            }
+        });
+    }
+
+    public BatchResponse<Boolean> sismember(final String key, final String member) {
+        return queue(key, true, new PipelineCallBack<Boolean>() {
+            public Response<Boolean> execute(RedisPipeline pipeline) {
+                return pipeline.sismember(key, member);
+            }
+        });
+    }
+
+    public BatchResponse<Long> zadd(final String key, final double score, final String member) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.zadd(key, score, member);
+            }
+        });
+    }
+
+    public BatchResponse<Long> zrem(final String key, final String... member) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.zrem(key, member);
+            }
+        });
+    }
+
+    public BatchResponse<Double> zscore(final String key, final String member) {
+        return queue(key, true, new PipelineCallBack<Double>() {
+            public Response<Double> execute(RedisPipeline pipeline) {
+                return pipeline.zscore(key, member);
+            }
+        });
+    }
+
+    public BatchResponse<Set<String>> zrange(final String key, final long start, final long end) {
+        return queue(key, true, new PipelineCallBack<Set<String>>() {
+            public Response<Set<String>> execute(RedisPipeline pipeline) {
+                return pipeline.zrange(key, start, end);
+            }
+        });
+    }
+
+    public BatchResponse<Long> pfadd(final String key, final String... elements) {
+        return queue(key, false, new PipelineCallBack<Long>() {
+            public Response<Long> execute(RedisPipeline pipeline) {
+                return pipeline.pfadd(key, elements);
+            }
+        });
+    }
+}
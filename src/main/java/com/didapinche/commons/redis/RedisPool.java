@@ -1,5 +1,7 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.NodeWeights;
+import com.didapinche.commons.redis.balance.SlaveBalancer;
 import com.didapinche.commons.redis.sentinel.SentinelActor;
 import redis.clients.jedis.*;
 
@@ -41,7 +43,7 @@ public interface RedisPool<T extends JedisCommands> extends SentinelActor{
      */
     void returnMasterResourceObject(T jedis);
     /**
-     * 获取Slave资源
+     * 获取Slave资源，没有slave时返回master的资源
      */
     <T>T getSlaveResource();
 
@@ -49,4 +51,24 @@ public interface RedisPool<T extends JedisCommands> extends SentinelActor{
      * 释放Master资源
      */
     void returnSlaveResourceObject(T jedis);
-}
\ No newline at end of file
+
+    /**
+     * key所在的master节点
+     */
+    HostAndPort getMasterHostAndPort(String key);
+
+    /**
+     * 读key时选用的slave节点，key所在分片没有可用slave时返回null
+     */
+    HostAndPort getSlaveHostAndPort(String key);
+
+    /**
+     * slave选择策略
+     */
+    SlaveBalancer getSlaveBalancer();
+
+    /**
+     * 节点权重，用于slave选择，运行时可调整
+     */
+    NodeWeights getNodeWeights();
+}
@@ -0,0 +1,220 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 基于游标的惰性遍历，可以同时遍历多个节点（分片）
+ * <p/>
+ * 每个节点同一时间只有一页在取，调用方消费当前页时下一页已经在后台获取；
+ * parallelism个节点同时推进，哪个节点的页先返回就先消费哪个，内存中最多缓存parallelism页
+ * <p/>
+ * 遍历完自动归还连接，中途放弃遍历时必须调用close
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class ScanIterator<T> implements Iterator<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanIterator.class);
+
+    /**
+     * 一个节点的分页获取
+     */
+    public static interface PageSource<T> {
+        ScanResult<T> scan(String cursor);
+    }
+
+    /**
+     * 逐个处理遍历到的元素，返回false时停止遍历
+     */
+    public static interface Consumer<T> {
+        boolean accept(T element);
+    }
+
+    private static class Page<T> {
+        final int source;
+        final ScanResult<T> result;
+
+        Page(int source, ScanResult<T> result) {
+            this.source = source;
+            this.result = result;
+        }
+    }
+
+    private final List<PageSource<T>> sources;
+
+    private final ExecutorCompletionService<Page<T>> completionService;
+
+    private final Closeable resource;
+
+    /**
+     * 下一个尚未开始遍历的节点
+     */
+    private int nextSource = 0;
+
+    /**
+     * 正在获取的页数
+     */
+    private int inFlight = 0;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    private boolean closed = false;
+
+    private boolean released = false;
+
+    ScanIterator(List<PageSource<T>> sources, ExecutorService executor, int parallelism, Closeable resource) {
+        this.sources = sources;
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.resource = resource;
+
+        for (int i = 0; i < Math.max(parallelism, 1) && nextSource < sources.size(); i++) {
+            fetch(nextSource++, ScanParams.SCAN_POINTER_START);
+        }
+    }
+
+    static ScanParams scanParams(String match, int count) {
+        ScanParams params = new ScanParams();
+        if (match != null) {
+            params.match(match);
+        }
+        if (count > 0) {
+            params.count(count);
+        }
+        return params;
+    }
+
+    /**
+     * 把遍历到的元素逐个交给consumer，结束后归还连接
+     *
+     * @return 处理的元素个数
+     */
+    static <T> long each(ScanIterator<T> iterator, Consumer<T> consumer) {
+        long count = 0;
+        try {
+            while (iterator.hasNext()) {
+                count++;
+                if (!consumer.accept(iterator.next())) {
+                    break;
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+
+    private void fetch(final int source, final String cursor) {
+        completionService.submit(new Callable<Page<T>>() {
+            @Override
+            public Page<T> call() throws Exception {
+                return new Page<>(source, sources.get(source).scan(cursor));
+            }
+        });
+        inFlight++;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed || inFlight == 0) {
+                close();
+                return false;
+            }
+
+            Page<T> page = take();
+            String cursor = page.result.getStringCursor();
+            if (!ScanParams.SCAN_POINTER_START.equals(cursor)) {
+                //先发出下一页，再消费当前页
+                fetch(page.source, cursor);
+            } else if (nextSource < sources.size()) {
+                fetch(nextSource++, ScanParams.SCAN_POINTER_START);
+            }
+            current = page.result.getResult().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Page<T> take() {
+        try {
+            Page<T> page = completionService.take().get();
+            inFlight--;
+            return page;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RedisClientException("interrupted while scanning");
+        } catch (ExecutionException e) {
+            inFlight--;
+            close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RedisClientException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * 等待已发出的页返回后归还连接，可重复调用
+     */
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+        closed = true;
+        current = Collections.emptyIterator();
+
+        //正在后台使用的连接不能提前归还，等待时间受socket超时限制
+        boolean interrupted = false;
+        while (inFlight > 0) {
+            try {
+                completionService.take();
+                inFlight--;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        released = true;
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                logger.warn("occur exception while release the scan resource", e);
+            }
+        }
+    }
+}
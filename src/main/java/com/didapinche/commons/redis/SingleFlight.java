@@ -0,0 +1,160 @@
+package com.didapinche.commons.redis;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相同的并发读命令（命令和参数都相同）只执行一次，其余线程等待并共享结果
+ * <p/>
+ * 热点key过期时大量线程同时回源，只占用一个连接。按命令族开关：
+ * string(GET)、hash(HGET/HMGET/HGETALL/HEXISTS)、list(LRANGE)、set(SMEMBERS)、zset(ZRANGE)
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class SingleFlight {
+
+    public static final String STRING = "string";
+
+    public static final String HASH = "hash";
+
+    public static final String LIST = "list";
+
+    public static final String SET = "set";
+
+    public static final String ZSET = "zset";
+
+    private static final Map<String, String> FAMILIES = new HashMap<>();
+
+    static {
+        FAMILIES.put("GET", STRING);
+        FAMILIES.put("HGET", HASH);
+        FAMILIES.put("HMGET", HASH);
+        FAMILIES.put("HGETALL", HASH);
+        FAMILIES.put("HEXISTS", HASH);
+        FAMILIES.put("LRANGE", LIST);
+        FAMILIES.put("SMEMBERS", SET);
+        FAMILIES.put("ZRANGE", ZSET);
+    }
+
+    private final ConcurrentHashMap<String, FutureTask<Object>> calls = new ConcurrentHashMap<>();
+
+    private volatile Set<String> families = new HashSet<>(Arrays.asList(STRING, HASH));
+
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 命令所属的命令族是否开启
+     */
+    public boolean isEnabled(String command) {
+        String family = FAMILIES.get(command);
+        return family != null && families.contains(family);
+    }
+
+    /**
+     * 同一signature同时只有一个调用真正执行
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String signature, final Callable<T> call) {
+        //任务里保存的结果不交给任何调用方，包括leader在内每个调用方都拿自己的副本
+        FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return snapshot(call.call());
+            }
+        });
+        FutureTask<Object> inFlight = calls.putIfAbsent(signature, task);
+        if (inFlight == null) {
+            try {
+                task.run();
+            } finally {
+                calls.remove(signature, task);
+            }
+            return (T) copy(result(task));
+        }
+
+        shared.incrementAndGet();
+        return (T) copy(result(inFlight));
+    }
+
+    private static Object result(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisClientException("interrupted while waiting for the in-flight command");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RedisClientException(cause.getMessage());
+        }
+    }
+
+    /**
+     * 共享的结果设为只读，防止被意外修改
+     */
+    private static Object snapshot(Object result) {
+        if (result instanceof Map) {
+            return Collections.unmodifiableMap((Map<?, ?>) result);
+        }
+        if (result instanceof List) {
+            return Collections.unmodifiableList((List<?>) result);
+        }
+        if (result instanceof Set) {
+            return Collections.unmodifiableSet((Set<?>) result);
+        }
+        return result;
+    }
+
+    /**
+     * 共享的结果是可变集合时各自复制一份，互不影响
+     */
+    private static Object copy(Object result) {
+        if (result instanceof Map) {
+            return new LinkedHashMap<>((Map<?, ?>) result);
+        }
+        if (result instanceof List) {
+            return new ArrayList<>((List<?>) result);
+        }
+        if (result instanceof Set) {
+            return new LinkedHashSet<>((Set<?>) result);
+        }
+        return result;
+    }
+
+    /**
+     * 共享结果的调用次数
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    public Set<String> getFamilies() {
+        return families;
+    }
+
+    public void setFamilies(Set<String> families) {
+        this.families = new HashSet<>(families);
+    }
+}
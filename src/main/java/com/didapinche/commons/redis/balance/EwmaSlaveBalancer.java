@@ -0,0 +1,80 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 耗时感知：随机取两个slave，选 平均耗时 * (正在执行数 + 1) 较小的一个（power of two choices）
+ * <p/>
+ * 耗时用按时间衰减的指数加权移动平均统计，失败按failurePenaltyMillis计入；
+ * 只比较两个节点，避免所有请求同时涌向当前最快的节点
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class EwmaSlaveBalancer extends LeastOutstandingSlaveBalancer {
+
+    /**
+     * 衰减时间常数 ms
+     */
+    private long decayMillis = 10000;
+
+    /**
+     * 失败时计入的耗时 ms
+     */
+    private long failurePenaltyMillis = 1000;
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        int size = slaves.size();
+        if (size == 1) {
+            return slaves.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        HostAndPort a = slaves.get(first);
+        HostAndPort b = slaves.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    @Override
+    public void onComplete(HostAndPort node, long latencyNanos, boolean success) {
+        NodeStats nodeStats = stats(node);
+        nodeStats.outstanding.decrementAndGet();
+        long penalty = TimeUnit.MILLISECONDS.toNanos(failurePenaltyMillis);
+        nodeStats.record(success ? latencyNanos : Math.max(latencyNanos, penalty), decayNanos());
+    }
+
+    private double cost(HostAndPort node) {
+        NodeStats nodeStats = stats(node);
+        return nodeStats.ewma(decayNanos()) * (nodeStats.outstanding.get() + 1);
+    }
+
+    private long decayNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(decayMillis);
+    }
+
+    public long getDecayMillis() {
+        return decayMillis;
+    }
+
+    public void setDecayMillis(long decayMillis) {
+        this.decayMillis = decayMillis;
+    }
+
+    public long getFailurePenaltyMillis() {
+        return failurePenaltyMillis;
+    }
+
+    public void setFailurePenaltyMillis(long failurePenaltyMillis) {
+        this.failurePenaltyMillis = failurePenaltyMillis;
+    }
+}
@@ -0,0 +1,59 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 选正在执行命令数最少的slave，相同时随机
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class LeastOutstandingSlaveBalancer implements SlaveBalancer {
+
+    protected final ConcurrentMap<HostAndPort, NodeStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        int size = slaves.size();
+        int offset = ThreadLocalRandom.current().nextInt(size);
+        HostAndPort best = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            HostAndPort slave = slaves.get((offset + i) % size);
+            int outstanding = stats(slave).outstanding.get();
+            if (outstanding < least) {
+                least = outstanding;
+                best = slave;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void onStart(HostAndPort node) {
+        stats(node).outstanding.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(HostAndPort node, long latencyNanos, boolean success) {
+        stats(node).outstanding.decrementAndGet();
+    }
+
+    protected NodeStats stats(HostAndPort node) {
+        NodeStats nodeStats = stats.get(node);
+        if (nodeStats == null) {
+            NodeStats created = new NodeStats();
+            nodeStats = stats.putIfAbsent(node, created);
+            if (nodeStats == null) {
+                nodeStats = created;
+            }
+        }
+        return nodeStats;
+    }
+}
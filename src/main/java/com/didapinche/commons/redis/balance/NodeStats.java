@@ -0,0 +1,44 @@
+package com.didapinche.commons.redis.balance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个节点的运行统计：正在执行的命令数、耗时的指数加权移动平均
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+class NodeStats {
+
+    final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * 平均耗时 ns，0表示还没有样本
+     */
+    private double ewma = 0;
+
+    private long updatedAt = System.nanoTime();
+
+    /**
+     * 按时间衰减合入一个样本：距上次更新越久，旧值权重越低
+     */
+    synchronized void record(long latencyNanos, long decayNanos) {
+        long now = System.nanoTime();
+        if (ewma == 0) {
+            ewma = latencyNanos;
+        } else {
+            double weight = Math.exp(-(double) Math.max(now - updatedAt, 0) / decayNanos);
+            ewma = ewma * weight + latencyNanos * (1 - weight);
+        }
+        updatedAt = now;
+    }
+
+    /**
+     * 当前平均耗时，长时间没有样本时逐渐回落，慢节点恢复后有机会重新被选中
+     */
+    synchronized double ewma(long decayNanos) {
+        double idle = Math.max(System.nanoTime() - updatedAt, 0);
+        return ewma * Math.exp(-idle / decayNanos);
+    }
+}
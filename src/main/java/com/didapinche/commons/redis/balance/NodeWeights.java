@@ -0,0 +1,95 @@
+package com.didapinche.commons.redis.balance;
+
+import com.didapinche.commons.redis.utils.Utils;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点权重，运行时可以随时调整，不需要重建连接池
+ * <p/>
+ * 配置格式："默认权重,host:port=权重,..."，例如 "1,10.0.0.5:6380=3"，只写数字时表示默认权重。
+ * 权重为0的节点不分配读流量（所有节点权重都为0时平均分配）
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class NodeWeights {
+
+    private final ConcurrentHashMap<HostAndPort, Integer> weights = new ConcurrentHashMap<>();
+
+    private volatile int defaultWeight = 1;
+
+    /**
+     * 每次修改加一，便于使用方缓存计算结果
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    public int get(HostAndPort node) {
+        Integer weight = weights.get(node);
+        return weight == null ? defaultWeight : weight;
+    }
+
+    public void set(HostAndPort node, int weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("weight of " + node + " must not be negative: " + weight);
+        weights.put(node, weight);
+        version.incrementAndGet();
+    }
+
+    /**
+     * 恢复为默认权重
+     */
+    public void remove(HostAndPort node) {
+        weights.remove(node);
+        version.incrementAndGet();
+    }
+
+    /**
+     * 按配置字符串设置权重
+     */
+    public void parse(String spec) {
+        if (spec == null)
+            return;
+        for (String item : spec.split(",")) {
+            item = item.trim();
+            if (item.isEmpty())
+                continue;
+            int index = item.lastIndexOf('=');
+            if (index < 0) {
+                setDefaultWeight(Integer.parseInt(item));
+            } else {
+                HostAndPort node = Utils.toHostAndPort(Arrays.asList(item.substring(0, index).trim().split(":")));
+                set(node, Integer.parseInt(item.substring(index + 1).trim()));
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    public void setDefaultWeight(int defaultWeight) {
+        if (defaultWeight < 0)
+            throw new IllegalArgumentException("default weight must not be negative: " + defaultWeight);
+        this.defaultWeight = defaultWeight;
+        version.incrementAndGet();
+    }
+
+    /**
+     * spring配置用，key为host:port
+     */
+    public void setWeights(Map<String, Integer> weights) {
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            set(Utils.toHostAndPort(Arrays.asList(entry.getKey().split(":"))), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机选择，默认策略
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RandomSlaveBalancer implements SlaveBalancer {
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        return slaves.get(ThreadLocalRandom.current().nextInt(slaves.size()));
+    }
+
+    @Override
+    public void onStart(HostAndPort node) {
+    }
+
+    @Override
+    public void onComplete(HostAndPort node, long latencyNanos, boolean success) {
+    }
+}
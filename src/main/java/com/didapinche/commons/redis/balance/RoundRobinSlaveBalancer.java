@@ -0,0 +1,31 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RoundRobinSlaveBalancer implements SlaveBalancer {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        return slaves.get((next.getAndIncrement() & Integer.MAX_VALUE) % slaves.size());
+    }
+
+    @Override
+    public void onStart(HostAndPort node) {
+    }
+
+    @Override
+    public void onComplete(HostAndPort node, long latencyNanos, boolean success) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+
+/**
+ * slave选择策略
+ * <p/>
+ * 客户端在每次命令执行前后调用onStart/onComplete，策略可以据此统计各节点的并发数和耗时
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public interface SlaveBalancer {
+
+    /**
+     * 从当前在线的slave中选一个，slaves不为空
+     *
+     * @param weights 节点权重，不考虑权重的策略可以忽略
+     */
+    HostAndPort select(List<HostAndPort> slaves, NodeWeights weights);
+
+    /**
+     * 开始在node上执行命令
+     */
+    void onStart(HostAndPort node);
+
+    /**
+     * 命令执行结束
+     *
+     * @param latencyNanos 耗时
+     * @param success      节点是否正常响应，命令错误（如WRONGTYPE）也算正常响应，连接断开或超时为false
+     */
+    void onComplete(HostAndPort node, long latencyNanos, boolean success);
+}
@@ -0,0 +1,69 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 平滑加权轮询（同nginx）：每轮所有节点的当前值加上各自权重，选当前值最大的节点并减去总权重
+ * <p/>
+ * 权重为5,1,1时选择顺序为 a a b a c a a，不会连续集中在高权重节点上。
+ * 各节点的当前值是独立的原子变量，选择时不加锁；并发选择交错时顺序会略有偏差，但每次选择加减的总量不变，
+ * 长期比例仍与权重一致
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class SmoothWeightedRoundRobinSlaveBalancer extends RoundRobinSlaveBalancer {
+
+    private final ConcurrentHashMap<HostAndPort, AtomicInteger> current = new ConcurrentHashMap<>();
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        int size = slaves.size();
+        int[] nodeWeights = new int[size];
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            nodeWeights[i] = weights.get(slaves.get(i));
+            total += nodeWeights[i];
+        }
+        if (total <= 0) {
+            return super.select(slaves, weights);
+        }
+
+        AtomicInteger best = null;
+        HostAndPort bestSlave = null;
+        int bestWeight = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            HostAndPort slave = slaves.get(i);
+            AtomicInteger value = value(slave);
+            int weight = value.addAndGet(nodeWeights[i]);
+            if (weight > bestWeight) {
+                bestWeight = weight;
+                best = value;
+                bestSlave = slave;
+            }
+        }
+        best.addAndGet(-total);
+        if (current.size() > size * 2) {
+            //清理已下线节点
+            current.keySet().retainAll(slaves);
+        }
+        return bestSlave;
+    }
+
+    private AtomicInteger value(HostAndPort slave) {
+        AtomicInteger value = current.get(slave);
+        if (value == null) {
+            AtomicInteger created = new AtomicInteger();
+            value = current.putIfAbsent(slave, created);
+            if (value == null) {
+                value = created;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,39 @@
+package com.didapinche.commons.redis.balance;
+
+import redis.clients.jedis.HostAndPort;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class WeightedRandomSlaveBalancer extends RandomSlaveBalancer {
+
+    @Override
+    public HostAndPort select(List<HostAndPort> slaves, NodeWeights weights) {
+        int size = slaves.size();
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += weights.get(slaves.get(i));
+        }
+        if (total <= 0) {
+            return super.select(slaves, weights);
+        }
+
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < size; i++) {
+            HostAndPort slave = slaves.get(i);
+            point -= weights.get(slave);
+            if (point < 0) {
+                return slave;
+            }
+        }
+        //权重在选择过程中被调整
+        return slaves.get(size - 1);
+    }
+}
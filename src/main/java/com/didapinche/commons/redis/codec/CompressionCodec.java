@@ -0,0 +1,176 @@
+package com.didapinche.commons.redis.codec;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 在其他codec外加一层自描述头，超过阈值的value用Deflater压缩
+ * <p/>
+ * 格式：magic(0xC0 0xDE) + flags(1字节) + [压缩时原始长度(4字节)] + 数据。
+ * 0xC0在UTF-8中不会出现，java序列化以0xACED开头，所以没有头的旧数据按原codec直接解码，新旧格式可以共存
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class CompressionCodec<T> implements RedisCodec<T> {
+
+    private static final byte MAGIC_0 = (byte) 0xC0;
+
+    private static final byte MAGIC_1 = (byte) 0xDE;
+
+    private static final byte FLAG_DEFLATE = 0x01;
+
+    private static final int HEADER_LENGTH = 3;
+
+    private static final int DEFLATE_HEADER_LENGTH = HEADER_LENGTH + 4;
+
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    //所有codec共用，每个线程只持有一个Deflater，压缩级别在每次使用前设置
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private final RedisCodec<T> codec;
+
+    /**
+     * 超过该字节数才压缩
+     */
+    private int threshold = 1024;
+
+    /**
+     * 压缩级别
+     */
+    private int level = Deflater.BEST_SPEED;
+
+    public CompressionCodec(RedisCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public CompressionCodec(RedisCodec<T> codec, int threshold) {
+        this.codec = codec;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        byte[] raw = codec.encode(value);
+        if (raw.length > threshold) {
+            byte[] compressed = deflate(raw);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+
+        byte[] bytes = new byte[HEADER_LENGTH + raw.length];
+        bytes[0] = MAGIC_0;
+        bytes[1] = MAGIC_1;
+        bytes[2] = 0;
+        System.arraycopy(raw, 0, bytes, HEADER_LENGTH, raw.length);
+        return bytes;
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1) {
+            //旧数据
+            return codec.decode(bytes);
+        }
+        if ((bytes[2] & FLAG_DEFLATE) != 0) {
+            return codec.decode(inflate(bytes));
+        }
+        return codec.decode(Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length));
+    }
+
+    /**
+     * 压缩后没有变小时返回null
+     */
+    private byte[] deflate(byte[] raw) {
+        if (raw.length <= DEFLATE_HEADER_LENGTH) {
+            return null;
+        }
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(raw);
+        deflater.finish();
+
+        byte[] bytes = new byte[raw.length];
+        int length = DEFLATE_HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (length == bytes.length) {
+                return null;
+            }
+            length += deflater.deflate(bytes, length, bytes.length - length);
+        }
+
+        bytes[0] = MAGIC_0;
+        bytes[1] = MAGIC_1;
+        bytes[2] = FLAG_DEFLATE;
+        bytes[3] = (byte) (raw.length >>> 24);
+        bytes[4] = (byte) (raw.length >>> 16);
+        bytes[5] = (byte) (raw.length >>> 8);
+        bytes[6] = (byte) raw.length;
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private byte[] inflate(byte[] bytes) {
+        int rawLength = ((bytes[3] & 0xff) << 24) | ((bytes[4] & 0xff) << 16) | ((bytes[5] & 0xff) << 8) | (bytes[6] & 0xff);
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(bytes, DEFLATE_HEADER_LENGTH, bytes.length - DEFLATE_HEADER_LENGTH);
+
+        byte[] raw = new byte[rawLength];
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new RedisClientException("corrupted compressed value, expect " + rawLength + " bytes but got " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new RedisClientException("corrupted compressed value: " + e.getMessage());
+        }
+        return raw;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 压缩级别，每次压缩前设置到线程共用的Deflater上，修改后立即生效
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+}
@@ -0,0 +1,15 @@
+package com.didapinche.commons.redis.codec;
+
+/**
+ * value编解码
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public interface RedisCodec<T> {
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+}
@@ -0,0 +1,41 @@
+package com.didapinche.commons.redis.codec;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * java序列化
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class SerializableCodec<T extends Serializable> implements RedisCodec<T> {
+
+    @Override
+    public byte[] encode(T value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new RedisClientException("can not serialize " + value.getClass().getName() + ": " + e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RedisClientException("can not deserialize value: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.didapinche.commons.redis.codec;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * UTF-8字符串，与String接口写入的值兼容
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class StringCodec implements RedisCodec<String> {
+
+    public static final StringCodec INSTANCE = new StringCodec();
+
+    @Override
+    public byte[] encode(String value) {
+        return SafeEncoder.encode(value);
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        return SafeEncoder.encode(bytes);
+    }
+}
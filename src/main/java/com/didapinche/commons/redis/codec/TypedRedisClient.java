@@ -0,0 +1,97 @@
+package com.didapinche.commons.redis.codec;
+
+import com.didapinche.commons.redis.BinaryRedisClient;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按codec读写对象的客户端，key仍然是String，value经codec编解码后走二进制命令
+ * <p/>
+ * 例如：new TypedRedisClient&lt;&gt;(redisClient, new CompressionCodec&lt;&gt;(StringCodec.INSTANCE))
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class TypedRedisClient<T> {
+
+    private final BinaryRedisClient client;
+
+    private final RedisCodec<T> codec;
+
+    public TypedRedisClient(BinaryRedisClient client, RedisCodec<T> codec) {
+        this.client = client;
+        this.codec = codec;
+    }
+
+    public String set(String key, T value) {
+        return client.set(SafeEncoder.encode(key), codec.encode(value));
+    }
+
+    public String setex(String key, int seconds, T value) {
+        return client.setex(SafeEncoder.encode(key), seconds, codec.encode(value));
+    }
+
+    public T get(String key) {
+        return decode(client.get(SafeEncoder.encode(key)));
+    }
+
+    public Long hset(String key, String field, T value) {
+        return client.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), codec.encode(value));
+    }
+
+    public T hget(String key, String field) {
+        return decode(client.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+    }
+
+    public String hmset(String key, Map<String, T> hash) {
+        Map<byte[], byte[]> encoded = new HashMap<>(hash.size() * 2);
+        for (Map.Entry<String, T> entry : hash.entrySet()) {
+            encoded.put(SafeEncoder.encode(entry.getKey()), codec.encode(entry.getValue()));
+        }
+        return client.hmset(SafeEncoder.encode(key), encoded);
+    }
+
+    public List<T> hmget(String key, String... fields) {
+        byte[][] encodedFields = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            encodedFields[i] = SafeEncoder.encode(fields[i]);
+        }
+        List<byte[]> values = client.hmget(SafeEncoder.encode(key), encodedFields);
+        List<T> result = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            result.add(decode(value));
+        }
+        return result;
+    }
+
+    public Map<String, T> hgetAll(String key) {
+        Map<byte[], byte[]> values = client.hgetAll(SafeEncoder.encode(key));
+        Map<String, T> result = new LinkedHashMap<>(values.size() * 2);
+        for (Map.Entry<byte[], byte[]> entry : values.entrySet()) {
+            result.put(SafeEncoder.encode(entry.getKey()), decode(entry.getValue()));
+        }
+        return result;
+    }
+
+    public Long del(String key) {
+        return client.del(SafeEncoder.encode(key));
+    }
+
+    private T decode(byte[] bytes) {
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    public BinaryRedisClient getClient() {
+        return client;
+    }
+
+    public RedisCodec<T> getCodec() {
+        return codec;
+    }
+}
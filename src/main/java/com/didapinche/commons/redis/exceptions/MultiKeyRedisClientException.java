@@ -12,4 +12,8 @@ public class MultiKeyRedisClientException extends RuntimeException {
     public MultiKeyRedisClientException(){
          super("multi key commands not support in MatrixRedisClient");
     }
+
+    public MultiKeyRedisClientException(String msg){
+         super(msg);
+    }
 }
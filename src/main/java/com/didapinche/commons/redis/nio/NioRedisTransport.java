@@ -0,0 +1,171 @@
+package com.didapinche.commons.redis.nio;
+
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于NIO的多路复用传输层，可替代连接池执行单key命令
+ * <p/>
+ * 每个redis节点只保持connectionsPerNode个连接，所有线程的命令在这些连接上pipeline发送，
+ * 大幅减少服务端连接数
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class NioRedisTransport {
+
+    /**
+     * 每个节点的连接数
+     */
+    private int connectionsPerNode = 1;
+
+    /**
+     * 连接和读超时 ms
+     */
+    private int timeout = Protocol.DEFAULT_TIMEOUT;
+
+    /**
+     * auth
+     */
+    private String passWord;
+
+    /**
+     * 每个连接读写缓冲区大小
+     */
+    private int bufferSize = 64 * 1024;
+
+    private final ConcurrentHashMap<HostAndPort, RespConnection[]> connections = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextConnection = new AtomicInteger(0);
+
+    private volatile RespEventLoop eventLoop;
+
+    /**
+     * 异步发送命令
+     */
+    public RespFuture send(HostAndPort hostAndPort, byte[]... args) {
+        return getConnection(hostAndPort).send(args);
+    }
+
+    /**
+     * 同步执行命令，响应交给命令的builder转换
+     *
+     * @throws RespReplyLostException 命令写出后连接失败或读超时，服务端可能已经执行
+     */
+    public <T> T execute(HostAndPort hostAndPort, RespCommand<T> command) {
+        RespConnection connection = getConnection(hostAndPort);
+        RespFuture future = connection.send(command.encode());
+        Object reply;
+        try {
+            reply = connection.await(future);
+        } catch (JedisConnectionException e) {
+            if (future.isWritten()) {
+                throw new RespReplyLostException(command.getCommand() + " sent to " + hostAndPort
+                        + " but no reply: " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        return command.builder.build(reply);
+    }
+
+    private RespConnection getConnection(HostAndPort hostAndPort) {
+        RespConnection[] nodeConnections = connections.get(hostAndPort);
+        if (nodeConnections == null) {
+            connections.putIfAbsent(hostAndPort, new RespConnection[connectionsPerNode]);
+            nodeConnections = connections.get(hostAndPort);
+        }
+
+        int index = (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % nodeConnections.length;
+        RespConnection connection = nodeConnections[index];
+        if (connection == null || connection.isClosed()) {
+            synchronized (nodeConnections) {
+                connection = nodeConnections[index];
+                if (connection == null || connection.isClosed()) {
+                    connection = new RespConnection(hostAndPort, getEventLoop(), timeout, bufferSize);
+                    connection.connect(passWord);
+                    nodeConnections[index] = connection;
+                }
+            }
+        }
+        return connection;
+    }
+
+    private RespEventLoop getEventLoop() {
+        if (eventLoop == null) {
+            synchronized (this) {
+                if (eventLoop == null) {
+                    try {
+                        RespEventLoop loop = new RespEventLoop("redis-nio-transport");
+                        loop.start();
+                        eventLoop = loop;
+                    } catch (IOException e) {
+                        throw new RedisClientException("can not open selector: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return eventLoop;
+    }
+
+    /**
+     * 关闭某个节点的所有连接（节点下线时）
+     */
+    public void close(HostAndPort hostAndPort) {
+        RespConnection[] nodeConnections = connections.remove(hostAndPort);
+        if (nodeConnections != null) {
+            for (RespConnection connection : nodeConnections) {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        for (HostAndPort hostAndPort : connections.keySet()) {
+            close(hostAndPort);
+        }
+        if (eventLoop != null) {
+            eventLoop.shutdown();
+        }
+    }
+
+    public int getConnectionsPerNode() {
+        return connectionsPerNode;
+    }
+
+    public void setConnectionsPerNode(int connectionsPerNode) {
+        this.connectionsPerNode = connectionsPerNode;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getPassWord() {
+        return passWord;
+    }
+
+    public void setPassWord(String passWord) {
+        this.passWord = passWord;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
@@ -0,0 +1,79 @@
+package com.didapinche.commons.redis.nio;
+
+import redis.clients.jedis.Builder;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 交给NioRedisTransport执行的单key命令
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespCommand<T> {
+
+    /**
+     * 路由用的key
+     */
+    final String key;
+
+    final Builder<T> builder;
+
+    private final String command;
+
+    private final String[] args;
+
+    private RespCommand(String key, Builder<T> builder, String command, String[] args) {
+        this.key = key;
+        this.builder = builder;
+        this.command = command;
+        this.args = args;
+    }
+
+    /**
+     * 参数在真正经由传输层发送时才编码，未启用传输层时没有额外开销
+     */
+    public static <T> RespCommand<T> of(String key, Builder<T> builder, String command, String... args) {
+        return new RespCommand<>(key, builder, command, args);
+    }
+
+    byte[][] encode() {
+        byte[][] encoded = new byte[args.length + 1][];
+        encoded[0] = SafeEncoder.encode(command);
+        for (int i = 0; i < args.length; i++) {
+            encoded[i + 1] = SafeEncoder.encode(args[i]);
+        }
+        return encoded;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * 命令和参数组成的标识，相同标识的命令结果相同
+     * <p/>
+     * 每个参数前加上长度，参数中含有任何字符都不会与其它参数列表混淆
+     */
+    public String signature() {
+        StringBuilder signature = new StringBuilder(command);
+        for (String arg : args) {
+            signature.append(' ').append(arg.length()).append(':').append(arg);
+        }
+        return signature.toString();
+    }
+
+    /**
+     * key后面接上可变参数
+     */
+    public static String[] join(String key, String... args) {
+        String[] joined = new String[args.length + 1];
+        joined[0] = key;
+        System.arraycopy(args, 0, joined, 1, args.length);
+        return joined;
+    }
+}
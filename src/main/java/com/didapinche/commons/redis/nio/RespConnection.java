@@ -0,0 +1,311 @@
+package com.didapinche.commons.redis.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多路复用的redis连接：任意线程都可以并发发送命令，命令按顺序pipeline写出，响应按发送顺序匹配
+ * <p/>
+ * 写缓冲和读缓冲都是复用的direct buffer，只在事件循环线程上访问
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespConnection implements RespEventLoop.Handler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RespConnection.class);
+
+    private final HostAndPort hostAndPort;
+
+    private final RespEventLoop eventLoop;
+
+    private final int timeout;
+
+    /**
+     * 待写出的命令
+     */
+    private final ConcurrentLinkedQueue<RespFuture> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已写出等待响应的命令，只在事件循环线程上访问
+     */
+    private final Queue<RespFuture> awaitingReplies = new ArrayDeque<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final RespDecoder decoder = new RespDecoder();
+
+    private ByteBuffer writeBuffer;
+
+    private ByteBuffer readBuffer;
+
+    /**
+     * 正在写出的数据，可能是writeBuffer，也可能是单条超大命令的临时buffer
+     */
+    private ByteBuffer outbound;
+
+    private SocketChannel channel;
+
+    private SelectionKey selectionKey;
+
+    private volatile boolean closed = false;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            try {
+                doWrite();
+            } catch (Exception e) {
+                onFailure(e);
+            }
+        }
+    };
+
+    public RespConnection(HostAndPort hostAndPort, RespEventLoop eventLoop, int timeout, int bufferSize) {
+        this.hostAndPort = hostAndPort;
+        this.eventLoop = eventLoop;
+        this.timeout = timeout;
+        this.writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+        this.readBuffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * 建立连接并注册到事件循环，有密码时先AUTH
+     */
+    public void connect(String password) {
+        try {
+            channel = SocketChannel.open();
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            channel.socket().connect(new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()), timeout);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            close(new JedisConnectionException("can not connect to " + hostAndPort, e));
+            throw new JedisConnectionException("can not connect to " + hostAndPort, e);
+        }
+
+        eventLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    selectionKey = channel.register(eventLoop.selector(), SelectionKey.OP_READ, RespConnection.this);
+                    doWrite();
+                } catch (Exception e) {
+                    onFailure(e);
+                }
+            }
+        });
+
+        if (password != null && password.length() > 0) {
+            try {
+                await(send(SafeEncoder.encode("AUTH"), SafeEncoder.encode(password)));
+            } catch (RuntimeException e) {
+                //认证失败时连接不会被使用，关闭防止泄露
+                close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 发送命令，立即返回
+     */
+    public RespFuture send(byte[]... args) {
+        RespFuture future = new RespFuture(args);
+        if (closed) {
+            future.fail(new JedisConnectionException("connection to " + hostAndPort + " has been closed"));
+            return future;
+        }
+        pendingWrites.add(future);
+        if (closed) {
+            //close已经清空过队列，补一次
+            failPending(new JedisConnectionException("connection to " + hostAndPort + " has been closed"));
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(flushTask);
+        }
+        return future;
+    }
+
+    /**
+     * 同步等待响应，错误回复以JedisDataException抛出
+     */
+    public Object await(RespFuture future) {
+        Object reply;
+        try {
+            reply = future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new JedisConnectionException("read timed out from " + hostAndPort);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException("interrupted while waiting for " + hostAndPort);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JedisConnectionException) {
+                throw (JedisConnectionException) e.getCause();
+            }
+            throw new JedisConnectionException(e.getCause());
+        }
+        if (reply instanceof JedisDataException) {
+            throw (JedisDataException) reply;
+        }
+        return reply;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public HostAndPort getHostAndPort() {
+        return hostAndPort;
+    }
+
+    public void close() {
+        eventLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                close(new JedisConnectionException("connection to " + hostAndPort + " has been closed"));
+            }
+        });
+    }
+
+    private void doWrite() throws IOException {
+        if (selectionKey == null || closed) {
+            //尚未注册，注册完成后会再写
+            return;
+        }
+        while (true) {
+            if (outbound != null) {
+                channel.write(outbound);
+                if (outbound.hasRemaining()) {
+                    selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound = null;
+            }
+
+            writeBuffer.clear();
+            RespFuture future;
+            while ((future = pendingWrites.peek()) != null) {
+                int length = RespEncoder.encodedLength(future.args);
+                if (length > writeBuffer.remaining()) {
+                    if (writeBuffer.position() == 0) {
+                        //单条命令超过缓冲区，单独分配
+                        ByteBuffer large = ByteBuffer.allocate(length);
+                        RespEncoder.encode(large, future.args);
+                        large.flip();
+                        pendingWrites.poll();
+                        future.markWritten();
+                        awaitingReplies.add(future);
+                        outbound = large;
+                    }
+                    break;
+                }
+                RespEncoder.encode(writeBuffer, future.args);
+                pendingWrites.poll();
+                future.markWritten();
+                awaitingReplies.add(future);
+            }
+
+            if (outbound == null) {
+                if (writeBuffer.position() == 0) {
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                writeBuffer.flip();
+                outbound = writeBuffer;
+            }
+        }
+    }
+
+    @Override
+    public void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            throw new JedisConnectionException("Unexpected end of stream from " + hostAndPort);
+        }
+
+        readBuffer.flip();
+        while (true) {
+            Object reply = decoder.decode(readBuffer);
+            if (reply == RespDecoder.INCOMPLETE) {
+                break;
+            }
+            RespFuture future = awaitingReplies.poll();
+            if (future == null) {
+                logger.warn("unexpected reply from " + hostAndPort);
+                continue;
+            }
+            future.complete(reply);
+        }
+
+        if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()) {
+            //一条响应超过缓冲区，扩容
+            ByteBuffer larger = ByteBuffer.allocateDirect(readBuffer.capacity() * 2);
+            larger.put(readBuffer);
+            readBuffer = larger;
+        } else {
+            readBuffer.compact();
+        }
+    }
+
+    @Override
+    public void onWritable() throws IOException {
+        doWrite();
+    }
+
+    @Override
+    public void onFailure(Throwable cause) {
+        logger.warn("connection to " + hostAndPort + " failed: " + cause.getMessage());
+        close(cause instanceof JedisConnectionException ? (JedisConnectionException) cause
+                : new JedisConnectionException(cause));
+    }
+
+    private void close(JedisConnectionException cause) {
+        closed = true;
+        if (selectionKey != null) {
+            selectionKey.cancel();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("occur exception while close the channel", e);
+            }
+        }
+        RespFuture future;
+        while ((future = awaitingReplies.poll()) != null) {
+            future.fail(cause);
+        }
+        failPending(cause);
+    }
+
+    private void failPending(JedisConnectionException cause) {
+        RespFuture future;
+        while ((future = pendingWrites.poll()) != null) {
+            future.fail(cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RespConnection{" + hostAndPort + (closed ? ", closed" : "") + "}";
+    }
+}
@@ -0,0 +1,141 @@
+package com.didapinche.commons.redis.nio;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RESP响应解码，返回值与jedis Protocol.read一致，可以直接交给BuilderFactory：
+ * <ul>
+ * <li>状态回复、bulk回复：byte[]</li>
+ * <li>整数回复：Long</li>
+ * <li>多条回复：List&lt;Object&gt;</li>
+ * <li>错误回复：JedisDataException</li>
+ * </ul>
+ * 数据不完整时返回INCOMPLETE并把buffer位置恢复到本条回复的起点
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public final class RespDecoder {
+
+    /**
+     * 数据不完整，需要继续读取
+     */
+    public static final Object INCOMPLETE = new Object();
+
+    private static final long INCOMPLETE_NUMBER = Long.MIN_VALUE;
+
+    public Object decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        Object reply = parse(buffer);
+        if (reply == INCOMPLETE) {
+            buffer.position(start);
+        }
+        return reply;
+    }
+
+    private Object parse(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return INCOMPLETE;
+        }
+        byte type = buffer.get();
+        switch (type) {
+            case '+': {
+                byte[] line = readLine(buffer);
+                return line == null ? INCOMPLETE : line;
+            }
+            case '-': {
+                byte[] line = readLine(buffer);
+                return line == null ? INCOMPLETE : new JedisDataException(SafeEncoder.encode(line));
+            }
+            case ':': {
+                long value = readNumber(buffer);
+                return value == INCOMPLETE_NUMBER ? INCOMPLETE : Long.valueOf(value);
+            }
+            case '$': {
+                long length = readNumber(buffer);
+                if (length == INCOMPLETE_NUMBER) {
+                    return INCOMPLETE;
+                }
+                if (length < 0) {
+                    return null;
+                }
+                if (buffer.remaining() < length + 2) {
+                    return INCOMPLETE;
+                }
+                byte[] data = new byte[(int) length];
+                buffer.get(data);
+                buffer.position(buffer.position() + 2);
+                return data;
+            }
+            case '*': {
+                long count = readNumber(buffer);
+                if (count == INCOMPLETE_NUMBER) {
+                    return INCOMPLETE;
+                }
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> replies = new ArrayList<>((int) count);
+                for (int i = 0; i < count; i++) {
+                    Object reply = parse(buffer);
+                    if (reply == INCOMPLETE) {
+                        return INCOMPLETE;
+                    }
+                    replies.add(reply);
+                }
+                return replies;
+            }
+            default:
+                throw new JedisConnectionException("Unknown reply: " + (char) type);
+        }
+    }
+
+    /**
+     * 读取到\r\n为止的一行，不完整时返回null
+     */
+    private byte[] readLine(ByteBuffer buffer) {
+        int start = buffer.position();
+        for (int i = start; i < buffer.limit() - 1; i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+                byte[] line = new byte[i - start];
+                buffer.get(line);
+                buffer.position(i + 2);
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取以\r\n结尾的十进制数，不完整时返回INCOMPLETE_NUMBER
+     */
+    private long readNumber(ByteBuffer buffer) {
+        long value = 0;
+        boolean negative = false;
+        int position = buffer.position();
+        int limit = buffer.limit();
+        if (position < limit && buffer.get(position) == '-') {
+            negative = true;
+            position++;
+        }
+        while (position < limit) {
+            byte b = buffer.get(position++);
+            if (b == '\r') {
+                if (position >= limit) {
+                    return INCOMPLETE_NUMBER;
+                }
+                buffer.position(position + 1);
+                return negative ? -value : value;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return INCOMPLETE_NUMBER;
+    }
+}
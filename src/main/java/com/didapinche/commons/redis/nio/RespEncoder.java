@@ -0,0 +1,67 @@
+package com.didapinche.commons.redis.nio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * RESP请求编码，命令编码为bulk string数组直接写入ByteBuffer
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public final class RespEncoder {
+
+    private static final byte ASTERISK = '*';
+    private static final byte DOLLAR = '$';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private RespEncoder() {
+    }
+
+    /**
+     * 命令编码后的字节数
+     */
+    public static int encodedLength(byte[][] args) {
+        int length = 1 + digits(args.length) + 2;
+        for (byte[] arg : args) {
+            length += 1 + digits(arg.length) + 2 + arg.length + 2;
+        }
+        return length;
+    }
+
+    /**
+     * 写入buffer，调用方需保证buffer剩余空间不小于encodedLength
+     */
+    public static void encode(ByteBuffer buffer, byte[][] args) {
+        buffer.put(ASTERISK);
+        writeInt(buffer, args.length);
+        buffer.put(CR).put(LF);
+        for (byte[] arg : args) {
+            buffer.put(DOLLAR);
+            writeInt(buffer, arg.length);
+            buffer.put(CR).put(LF);
+            buffer.put(arg);
+            buffer.put(CR).put(LF);
+        }
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeInt(ByteBuffer buffer, int value) {
+        int digits = digits(value);
+        int position = buffer.position();
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer.put(position + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(position + digits);
+    }
+}
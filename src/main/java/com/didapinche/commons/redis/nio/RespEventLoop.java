@@ -0,0 +1,144 @@
+package com.didapinche.commons.redis.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单线程selector循环，负责其上所有连接的读写
+ * <p/>
+ * 连接注册、写出等操作都以任务的形式交给循环线程执行，缓冲区只被循环线程访问
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespEventLoop implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RespEventLoop.class);
+
+    /**
+     * selector上的事件处理者
+     */
+    public static interface Handler {
+        void onReadable() throws IOException;
+
+        void onWritable() throws IOException;
+
+        void onFailure(Throwable cause);
+    }
+
+    /**
+     * 使用非阻塞connect的事件处理者，注册OP_CONNECT后在连接建立时回调
+     */
+    public static interface ConnectHandler extends Handler {
+        void onConnectable() throws IOException;
+    }
+
+    private final String name;
+
+    private final Selector selector;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private Thread thread;
+
+    public RespEventLoop(String name) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+    }
+
+    public synchronized void start() {
+        if (running.compareAndSet(false, true)) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void shutdown() {
+        running.set(false);
+        selector.wakeup();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 在循环线程上执行任务
+     */
+    public void execute(Runnable task) {
+        if (inEventLoop()) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    @Override
+    public void run() {
+        while (running.get()) {
+            try {
+                selector.select(1000);
+                runTasks();
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    Handler handler = (Handler) key.attachment();
+                    try {
+                        if (key.isValid() && key.isConnectable()) {
+                            ((ConnectHandler) handler).onConnectable();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            handler.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            handler.onWritable();
+                        }
+                    } catch (Exception e) {
+                        handler.onFailure(e);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Exception in " + name, e);
+            }
+        }
+
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            ((Handler) key.attachment()).onFailure(new IOException(name + " has been shut down"));
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("occur exception while close the selector", e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Exception in " + name + " task", e);
+            }
+        }
+    }
+}
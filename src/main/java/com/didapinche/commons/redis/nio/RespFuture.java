@@ -0,0 +1,90 @@
+package com.didapinche.commons.redis.nio;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一条已发送（或待发送）命令的响应
+ * <p/>
+ * 响应按发送顺序一一对应，超时的命令仍然占着自己的位置，响应到达后照常完成
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespFuture implements Future<Object> {
+
+    final byte[][] args;
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private volatile Object reply;
+
+    private volatile Throwable failure;
+
+    private volatile boolean written = false;
+
+    RespFuture(byte[][] args) {
+        this.args = args;
+    }
+
+    void markWritten() {
+        this.written = true;
+    }
+
+    /**
+     * 命令是否已经编码进写缓冲，之后失败时无法确定服务端是否执行过
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    void complete(Object reply) {
+        this.reply = reply;
+        latch.countDown();
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+        latch.countDown();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return result();
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("redis reply timeout");
+        }
+        return result();
+    }
+
+    private Object result() throws ExecutionException {
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return reply;
+    }
+}
@@ -0,0 +1,17 @@
+package com.didapinche.commons.redis.nio;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 命令已经写出后连接断开或读超时，服务端可能已经执行了该命令，非幂等的写命令不能重发
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespReplyLostException extends JedisConnectionException {
+
+    public RespReplyLostException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
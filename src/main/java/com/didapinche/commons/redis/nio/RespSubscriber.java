@@ -0,0 +1,272 @@
+package com.didapinche.commons.redis.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞的pub/sub订阅连接：连接、SUBSCRIBE、读消息都在事件循环线程上完成，不占用单独的线程
+ * <p/>
+ * 连接失败、断开或连接超时后等待retryWaitMillis自动重连并重新订阅，直到close
+ * <p/>
+ * 消息用通用的RespDecoder解码成List和byte[]再转成String交给Listener，每条消息都有少量分配；
+ * sentinel消息只在拓扑变化时出现，没有为此在缓冲区上原地解析
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class RespSubscriber implements RespEventLoop.ConnectHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RespSubscriber.class);
+
+    private static final byte[] MESSAGE = SafeEncoder.encode("message");
+
+    private static final byte[] SUBSCRIBE = SafeEncoder.encode("subscribe");
+
+    /**
+     * 订阅事件的回调，在事件循环线程上执行，不能阻塞
+     */
+    public static interface Listener {
+        /**
+         * 所有频道订阅成功（包括每次重连后）
+         */
+        void onSubscribed(HostAndPort hostAndPort);
+
+        void onMessage(HostAndPort hostAndPort, String channel, String message);
+
+        void onDisconnected(HostAndPort hostAndPort, Throwable cause);
+    }
+
+    private final HostAndPort hostAndPort;
+
+    private final RespEventLoop eventLoop;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int timeout;
+
+    private final long retryWaitMillis;
+
+    private final String[] channels;
+
+    private final Listener listener;
+
+    private final RespDecoder decoder = new RespDecoder();
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+    private ByteBuffer outbound;
+
+    private SocketChannel channel;
+
+    private SelectionKey selectionKey;
+
+    /**
+     * 连接次数，用于识别过期的超时检查
+     */
+    private int attempt;
+
+    private volatile boolean closed = false;
+
+    public RespSubscriber(HostAndPort hostAndPort, RespEventLoop eventLoop, ScheduledExecutorService scheduler,
+                          int timeout, long retryWaitMillis, Listener listener, String... channels) {
+        this.hostAndPort = hostAndPort;
+        this.eventLoop = eventLoop;
+        this.scheduler = scheduler;
+        this.timeout = timeout;
+        this.retryWaitMillis = retryWaitMillis;
+        this.listener = listener;
+        this.channels = channels;
+    }
+
+    /**
+     * 开始连接并订阅，立即返回
+     */
+    public void start() {
+        eventLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                connect();
+            }
+        });
+    }
+
+    public void close() {
+        closed = true;
+        eventLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeChannel();
+            }
+        });
+    }
+
+    public HostAndPort getHostAndPort() {
+        return hostAndPort;
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+        final int current = ++attempt;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            readBuffer.clear();
+            outbound = null;
+            if (channel.connect(new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()))) {
+                selectionKey = channel.register(eventLoop.selector(), SelectionKey.OP_READ, this);
+                subscribe();
+            } else {
+                selectionKey = channel.register(eventLoop.selector(), SelectionKey.OP_CONNECT, this);
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        eventLoop.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (current == attempt && channel != null && channel.isConnectionPending()) {
+                                    onFailure(new JedisConnectionException("connect to " + hostAndPort + " timed out"));
+                                }
+                            }
+                        });
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            onFailure(e);
+        }
+    }
+
+    @Override
+    public void onConnectable() throws IOException {
+        channel.finishConnect();
+        selectionKey.interestOps(SelectionKey.OP_READ);
+        subscribe();
+    }
+
+    private void subscribe() throws IOException {
+        byte[][] args = new byte[channels.length + 1][];
+        args[0] = SafeEncoder.encode("SUBSCRIBE");
+        for (int i = 0; i < channels.length; i++) {
+            args[i + 1] = SafeEncoder.encode(channels[i]);
+        }
+        outbound = ByteBuffer.allocate(RespEncoder.encodedLength(args));
+        RespEncoder.encode(outbound, args);
+        outbound.flip();
+        onWritable();
+    }
+
+    @Override
+    public void onWritable() throws IOException {
+        if (outbound == null) {
+            return;
+        }
+        channel.write(outbound);
+        if (outbound.hasRemaining()) {
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            outbound = null;
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    @Override
+    public void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            throw new JedisConnectionException("Unexpected end of stream from " + hostAndPort);
+        }
+
+        readBuffer.flip();
+        while (true) {
+            Object reply = decoder.decode(readBuffer);
+            if (reply == RespDecoder.INCOMPLETE) {
+                break;
+            }
+            onReply(reply);
+        }
+
+        if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()) {
+            //一条消息超过缓冲区，扩容
+            ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            larger.put(readBuffer);
+            readBuffer = larger;
+        } else {
+            readBuffer.compact();
+        }
+    }
+
+    /**
+     * 订阅回复：[subscribe, channel, count]，消息：[message, channel, payload]
+     */
+    private void onReply(Object reply) {
+        if (!(reply instanceof List) || ((List<?>) reply).size() != 3) {
+            logger.warn("unexpected reply from " + hostAndPort + ": " + reply);
+            return;
+        }
+        List<?> frame = (List<?>) reply;
+        byte[] type = (byte[]) frame.get(0);
+        if (Arrays.equals(MESSAGE, type)) {
+            listener.onMessage(hostAndPort, SafeEncoder.encode((byte[]) frame.get(1)),
+                    SafeEncoder.encode((byte[]) frame.get(2)));
+        } else if (Arrays.equals(SUBSCRIBE, type) && ((Long) frame.get(2)).intValue() == channels.length) {
+            logger.info("Subscribed to " + hostAndPort);
+            listener.onSubscribed(hostAndPort);
+        }
+    }
+
+    @Override
+    public void onFailure(Throwable cause) {
+        closeChannel();
+        if (closed) {
+            return;
+        }
+
+        logger.warn("Lost connection to " + hostAndPort + ": " + cause.getMessage()
+                + ". Sleeping " + retryWaitMillis + "ms and retrying.");
+        listener.onDisconnected(hostAndPort, cause);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                start();
+            }
+        }, retryWaitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeChannel() {
+        if (selectionKey != null) {
+            selectionKey.cancel();
+            selectionKey = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("occur exception while close the channel", e);
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RespSubscriber{" + hostAndPort + (closed ? ", closed" : "") + "}";
+    }
+}
@@ -28,7 +28,7 @@ public interface SentinelActor {
     void sdownSlave(String masterName, HostAndPort hostAndPort);
 
     /**
-     * 从机上线
+     * 从机上线，可以在从机就绪后异步生效
      * @param masterName
      * @param hostAndPort
      */
@@ -42,4 +42,16 @@ public interface SentinelActor {
      */
     void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps);
 
+    /**
+     * 当前使用的master，用于与sentinel对账
+     * @param masterName
+     */
+    HostAndPort getMaster(String masterName);
+
+    /**
+     * 当前在线的slave，用于与sentinel对账
+     * @param masterName
+     */
+    List<HostAndPort> getSlaves(String masterName);
+
 }
@@ -0,0 +1,193 @@
+package com.didapinche.commons.redis.sentinel;
+
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * sentinel事件合并
+ * <p/>
+ * 每个sentinel都会发布同样的+switch-master/+sdown/-sdown，一次故障转移会收到N份相同的事件。
+ * 收到第一个事件后等待windowMillis，期间每个master只保留最后的新master，每个slave只保留最后的上下线状态，
+ * 窗口结束后按master切换、slave上下线的顺序把最终状态交给SentinelActor各执行一次。
+ * 窗口内slave先下线后又上线时依次执行sdownSlave、nsdownSlave，重启的slave仍然要经过就绪探测
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class SentinelEventAggregator implements SentinelActor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentinelEventAggregator.class);
+
+    private final SentinelActor sentinelActor;
+
+    private final long windowMillis;
+
+    //窗口结束后串行执行SentinelActor
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-sentinel-aggregator"));
+
+    //窗口内各master最后的新master
+    private Map<String, HostAndPort> masters = new LinkedHashMap<>();
+
+    //窗口内各slave的状态
+    private Map<String, Map<HostAndPort, SlaveState>> slaves = new LinkedHashMap<>();
+
+    private boolean flushScheduled = false;
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong applied = new AtomicLong();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public SentinelEventAggregator(SentinelActor sentinelActor, long windowMillis) {
+        this.sentinelActor = sentinelActor;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public synchronized void switchMaster(String masterName, HostAndPort newMasterHostAndPort) {
+        received.incrementAndGet();
+        masters.put(masterName, newMasterHostAndPort);
+        //新master之前的slave状态作废
+        Map<HostAndPort, SlaveState> states = slaves.get(masterName);
+        if (states != null) {
+            states.remove(newMasterHostAndPort);
+        }
+        schedule();
+    }
+
+    @Override
+    public synchronized void sdownSlave(String masterName, HostAndPort hostAndPort) {
+        received.incrementAndGet();
+        SlaveState state = slaveState(masterName, hostAndPort);
+        state.up = false;
+        state.wentDown = true;
+        schedule();
+    }
+
+    @Override
+    public synchronized void nsdownSlave(String masterName, HostAndPort hostAndPort) {
+        received.incrementAndGet();
+        slaveState(masterName, hostAndPort).up = true;
+        schedule();
+    }
+
+    @Override
+    public void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
+        sentinelActor.buildMasterSlaveInfo(masterName, masterInfo, slaveHaps);
+    }
+
+    @Override
+    public HostAndPort getMaster(String masterName) {
+        return sentinelActor.getMaster(masterName);
+    }
+
+    @Override
+    public List<HostAndPort> getSlaves(String masterName) {
+        return sentinelActor.getSlaves(masterName);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * 收到的事件数
+     */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * 合并后实际执行的事件数
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    private SlaveState slaveState(String masterName, HostAndPort hostAndPort) {
+        Map<HostAndPort, SlaveState> states = slaves.get(masterName);
+        if (states == null) {
+            states = new LinkedHashMap<>();
+            slaves.put(masterName, states);
+        }
+        SlaveState state = states.get(hostAndPort);
+        if (state == null) {
+            state = new SlaveState();
+            states.put(hostAndPort, state);
+        }
+        return state;
+    }
+
+    private void schedule() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(flushTask, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<String, HostAndPort> pendingMasters;
+        Map<String, Map<HostAndPort, SlaveState>> pendingSlaves;
+        synchronized (this) {
+            pendingMasters = masters;
+            pendingSlaves = slaves;
+            masters = new LinkedHashMap<>();
+            slaves = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+
+        for (Map.Entry<String, HostAndPort> master : pendingMasters.entrySet()) {
+            applied.incrementAndGet();
+            try {
+                sentinelActor.switchMaster(master.getKey(), master.getValue());
+            } catch (Exception e) {
+                logger.error("occur exception while switch master " + master.getKey() + " to " + master.getValue(), e);
+            }
+        }
+        for (Map.Entry<String, Map<HostAndPort, SlaveState>> states : pendingSlaves.entrySet()) {
+            for (Map.Entry<HostAndPort, SlaveState> state : states.getValue().entrySet()) {
+                try {
+                    //先下线再上线：slave还在池中时nsdownSlave不会触发就绪探测
+                    if (state.getValue().wentDown) {
+                        applied.incrementAndGet();
+                        sentinelActor.sdownSlave(states.getKey(), state.getKey());
+                    }
+                    if (state.getValue().up) {
+                        applied.incrementAndGet();
+                        sentinelActor.nsdownSlave(states.getKey(), state.getKey());
+                    }
+                } catch (Exception e) {
+                    logger.error("occur exception while update slave " + state.getKey() + " of " + states.getKey(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 窗口内一个slave的状态
+     */
+    private static final class SlaveState {
+        //最后的状态，true为上线
+        boolean up;
+        //窗口内是否下线过
+        boolean wentDown;
+    }
+}
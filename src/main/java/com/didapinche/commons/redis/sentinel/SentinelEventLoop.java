@@ -0,0 +1,217 @@
+package com.didapinche.commons.redis.sentinel;
+
+import com.didapinche.commons.redis.nio.RespEventLoop;
+import com.didapinche.commons.redis.nio.RespSubscriber;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 订阅sentinel频道的消息
+ * <p/>
+ * 所有sentinel的订阅连接共用一个NIO事件循环线程，消息解析后交给单线程executor按到达顺序调用SentinelActor，
+ * 拓扑变化较慢时也不会阻塞事件循环；连接断开后自动重连并重新订阅
+ *
+ * Project: redis client
+ *
+ * Copyright 2015 didapinche.com
+ */
+public class SentinelEventLoop implements RespSubscriber.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentinelEventLoop.class);
+
+    /**
+     * 切换master标签
+     */
+    public final static String SWITCH_MASTER = "+switch-master";
+    /**
+     * 主观下线标签
+     */
+    public final static String S_DOWN = "+sdown";
+
+    /**
+     * 主观上线标签（不再是主观下线的状态）
+     */
+    public final static String N_S_DOWN = "-sdown";
+
+    /**
+     * 监控的主机名称集合
+     */
+    private final List<String> masterNames;
+
+    /**
+     * HA动作执行者
+     */
+    private final SentinelActor sentinelActor;
+
+    private final RespEventLoop eventLoop;
+
+    //连接超时和重连计时
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-sentinel-timer"));
+
+    //串行执行SentinelActor，保持事件顺序
+    private final ExecutorService actorExecutor =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("redis-sentinel-actor"));
+
+    private final List<RespSubscriber> subscribers = new ArrayList<>();
+
+    /**
+     * 连接超时 ms
+     */
+    private int timeout = 2000;
+
+    /**
+     * 等待重试时间
+     */
+    private long subscribeRetryWaitTimeMillis = 5000;
+
+    /**
+     * 每次订阅成功后执行，用于补偿断线期间错过的事件，在事件循环线程上调用，不能阻塞
+     */
+    private volatile Runnable subscribedCallback;
+
+    public SentinelEventLoop(List<String> masterNames, SentinelActor sentinelActor) throws IOException {
+        this.masterNames = masterNames;
+        this.sentinelActor = sentinelActor;
+        this.eventLoop = new RespEventLoop("redis-sentinel-event-loop");
+    }
+
+    /**
+     * 订阅所有sentinel，立即返回
+     */
+    public synchronized void start(List<HostAndPort> sentinels) {
+        eventLoop.start();
+        for (HostAndPort sentinel : sentinels) {
+            RespSubscriber subscriber = new RespSubscriber(sentinel, eventLoop, scheduler, timeout,
+                    subscribeRetryWaitTimeMillis, this, SWITCH_MASTER, S_DOWN, N_S_DOWN);
+            subscribers.add(subscriber);
+            subscriber.start();
+        }
+    }
+
+    public synchronized void shutdown() {
+        for (RespSubscriber subscriber : subscribers) {
+            logger.info("Shutting down listener on " + subscriber.getHostAndPort());
+            subscriber.close();
+        }
+        subscribers.clear();
+        eventLoop.shutdown();
+        scheduler.shutdown();
+        actorExecutor.shutdown();
+    }
+
+    @Override
+    public void onSubscribed(HostAndPort sentinel) {
+        Runnable callback = subscribedCallback;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    @Override
+    public void onDisconnected(HostAndPort sentinel, Throwable cause) {
+    }
+
+    @Override
+    public void onMessage(final HostAndPort sentinel, final String channel, final String message) {
+        actorExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dispatch(sentinel, channel, message);
+                } catch (Exception e) {
+                    logger.error("occur exception while handle " + channel + " " + message, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 解析消息并调用SentinelActor
+     * <p/>
+     * +sdown/-sdown：&lt;instance-type&gt; &lt;name&gt; &lt;ip&gt; &lt;port&gt; @ &lt;master-name&gt; &lt;master-ip&gt; &lt;master-port&gt;
+     * <p/>
+     * +switch-master：&lt;master-name&gt; &lt;old-ip&gt; &lt;old-port&gt; &lt;new-ip&gt; &lt;new-port&gt;
+     */
+    void dispatch(HostAndPort sentinel, String channel, String message) {
+        logger.info("Sentinel " + sentinel + " published: " + message + ".");
+
+        List<String> fields = fields(message);
+
+        if (S_DOWN.equals(channel) || N_S_DOWN.equals(channel)) {
+            if (!fields.isEmpty() && "master".equals(fields.get(0))) {
+                return;//master上下线，忽略 ,等待+switch-master
+            } else if (fields.size() < 6) {
+                logger.warn("Invalid message received on Sentinel " + sentinel + " on channel " + channel + ": " + message);
+            } else if (!masterNames.contains(fields.get(5))) {
+                logger.info("Ignoring message on " + channel + " for master name " + fields.get(5) + ".");
+            } else if (S_DOWN.equals(channel)) { //从机下线
+                sentinelActor.sdownSlave(fields.get(5), hostAndPort(fields.get(2), fields.get(3)));
+            } else { //从机上线
+                sentinelActor.nsdownSlave(fields.get(5), hostAndPort(fields.get(2), fields.get(3)));
+            }
+        } else if (SWITCH_MASTER.equals(channel) && fields.size() > 4) {
+            if (masterNames.contains(fields.get(0))) {
+                sentinelActor.switchMaster(fields.get(0), hostAndPort(fields.get(3), fields.get(4)));
+            } else {
+                logger.info("Ignoring message on +switch-master for master name " + fields.get(0) + ".");
+            }
+        } else {
+            logger.warn("Invalid message received on Sentinel " + sentinel + " on channel " + channel + ": " + message);
+        }
+    }
+
+    private static HostAndPort hostAndPort(String host, String port) {
+        return new HostAndPort(host, Integer.parseInt(port));
+    }
+
+    /**
+     * 按空格切分消息
+     */
+    static List<String> fields(String message) {
+        List<String> fields = new ArrayList<>(8);
+        int start = 0;
+        for (int i = 0; i <= message.length(); i++) {
+            if (i == message.length() || message.charAt(i) == ' ') {
+                if (i > start) {
+                    fields.add(message.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    public Runnable getSubscribedCallback() {
+        return subscribedCallback;
+    }
+
+    public void setSubscribedCallback(Runnable subscribedCallback) {
+        this.subscribedCallback = subscribedCallback;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getSubscribeRetryWaitTimeMillis() {
+        return subscribeRetryWaitTimeMillis;
+    }
+
+    public void setSubscribeRetryWaitTimeMillis(long subscribeRetryWaitTimeMillis) {
+        this.subscribeRetryWaitTimeMillis = subscribeRetryWaitTimeMillis;
+    }
+}
@@ -19,8 +19,31 @@ public class SentinelInfo {
 
     private String password;
 
+    /**
+     * 节点权重，格式见NodeWeights，例如 "1,10.0.0.5:6380=3"
+     */
     private String weight;
 
+    /**
+     * 连接sentinel的连接和读超时 ms
+     */
+    private int timeout = 2000;
+
+    /**
+     * 启动时向所有sentinel查询主从信息的总时限 ms
+     */
+    private long discoveryTimeoutMillis = 5000;
+
+    /**
+     * 合并sentinel事件的时间窗口 ms，<=0时不合并
+     */
+    private long coalesceMillis = 200;
+
+    /**
+     * 定期与sentinel对账主从拓扑的间隔 ms，<=0时只在重新订阅后对账
+     */
+    private long reconcileIntervalMillis = 60000;
+
 
 
     public Set<String> getSentinels() {
@@ -48,6 +71,38 @@ public class SentinelInfo {
     }
 
 
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getDiscoveryTimeoutMillis() {
+        return discoveryTimeoutMillis;
+    }
+
+    public void setDiscoveryTimeoutMillis(long discoveryTimeoutMillis) {
+        this.discoveryTimeoutMillis = discoveryTimeoutMillis;
+    }
+
+    public long getCoalesceMillis() {
+        return coalesceMillis;
+    }
+
+    public void setCoalesceMillis(long coalesceMillis) {
+        this.coalesceMillis = coalesceMillis;
+    }
+
+    public long getReconcileIntervalMillis() {
+        return reconcileIntervalMillis;
+    }
+
+    public void setReconcileIntervalMillis(long reconcileIntervalMillis) {
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
     public List<String> getMasterNames() {
         return masterNames;
     }
@@ -1,6 +1,7 @@
 package com.didapinche.commons.redis.sentinel;
 
 import com.didapinche.commons.redis.*;
+import com.didapinche.commons.redis.utils.NamedThreadFactory;
 import com.didapinche.commons.redis.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +12,19 @@ import redis.clients.jedis.JedisShardInfo;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisException;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * RedisClientException.java
@@ -24,10 +37,36 @@ import java.util.*;
 public class SentinelsManager implements InitializingBean{
     private static final Logger logger = LoggerFactory.getLogger(SentinelsManager.class);
 
+    private static final int MAX_DISCOVERY_THREADS = 64;
+
     /**
      * 监听redisSentinel
      */
-    private Set<MasterListener> masterListeners = new HashSet<MasterListener>();
+    private SentinelEventLoop sentinelEventLoop;
+    /**
+     * 合并多个sentinel发布的相同事件
+     */
+    private SentinelEventAggregator eventAggregator;
+    /**
+     * sentinel地址
+     */
+    private List<HostAndPort> sentinelHaps;
+    /**
+     * 事件经过合并后的执行者
+     */
+    private SentinelActor sentinelActor;
+    /**
+     * 对账线程，重新订阅后和定期执行
+     */
+    private ScheduledExecutorService reconciler;
+    /**
+     * 已有待执行的对账
+     */
+    private final AtomicBoolean reconcilePending = new AtomicBoolean(false);
+    /**
+     * 并行查询sentinel的线程，启动和每次对账共用
+     */
+    private volatile ExecutorService discoveryExecutor;
     /**
      * sentinel 配置信息
      */
@@ -36,8 +75,32 @@ public class SentinelsManager implements InitializingBean{
      * 连接池
      */
     private RedisPool reidsPool;
+    /**
+     * 一个sentinel对一个master的查询结果
+     */
+    private static final class MasterAddr {
+        //为null时该sentinel没有监控这个master
+        final HostAndPort master;
+        final List<HostAndPort> slaves;
+        //sentinel给出的master不一致且没有过半，master为null
+        final boolean undetermined;
+
+        MasterAddr(HostAndPort master, List<HostAndPort> slaves) {
+            this(master, slaves, false);
+        }
+
+        MasterAddr(HostAndPort master, List<HostAndPort> slaves, boolean undetermined) {
+            this.master = master;
+            this.slaves = slaves;
+            this.undetermined = undetermined;
+        }
+    }
+
     /**
      * 初始化一组sentinel监听服务，之后初始化master连接池和slave连接池
+     * <p/>
+     * 所有sentinel和所有master name并行查询，整体不超过discoveryTimeoutMillis，
+     * 每个master取过半sentinel给出的地址，没有过半时启动失败
      * @return
      */
     private void initSentinels() {
@@ -45,103 +108,303 @@ public class SentinelsManager implements InitializingBean{
         Set<String> sentinels = sentinelInfo.getSentinels();
         List<String> masterNames = sentinelInfo.getMasterNames();
 
-        HostAndPort master = null;
-        List<Map<String,String>>  slaveInfos = null;
-        List<HostAndPort> slaveHaps = null;
-        boolean sentinelAvailable = false;
+        logger.info("Trying to find masters from " + sentinels.size() + " Sentinels...");
 
-        logger.info("Trying to find master from available Sentinels...");
+        sentinelHaps = new ArrayList<>();
+        for (String sentinel : sentinels) {
+            sentinelHaps.add(Utils.toHostAndPort(Arrays.asList(sentinel.split(":"))));
+        }
+
+        Map<String, MasterAddr> found = discover();
+        HostAndPort master = null;
+        for (String masterName : masterNames) {
+            MasterAddr addr = found.get(masterName);
+            if (addr == null || addr.master == null) {
+                if (addr != null && addr.undetermined) {
+                    this.shutdownSentinels();
+                    throw new JedisException("Sentinels disagree on master " + masterName
+                            + ", no address is given by a majority...");
+                } else if (addr != null) {
+                    // can connect to sentinel, but master name seems to not
+                    // monitored
+                    this.shutdownSentinels();
+                    throw new JedisException("Can connect to sentinel, but " + masterName
+                            + " seems to be not monitored...");
+                } else {
+                    this.shutdownSentinels();
+                    throw new JedisConnectionException("All sentinels down, cannot determine where is "
+                            + masterName + " master is running...");
+                }
+            }
 
-        for(String masterName : masterNames ){
-            for (String sentinel : sentinels) {
-                final HostAndPort hap = Utils.toHostAndPort(Arrays.asList(sentinel.split(":")));
+            master = addr.master;
+            logger.info("Found Redis master " + masterName + " at " + master);
 
-                logger.info("Connecting to Sentinel " + hap);
+            //构建一个masterName
+            reidsPool.buildMasterSlaveInfo(masterName, master, addr.slaves);
+        }
 
-                Jedis jedis = null;
-                try {
-                    jedis = new Jedis(hap.getHost(), hap.getPort());
+        //节点权重
+        reidsPool.getNodeWeights().parse(sentinelInfo.getWeight());
 
+        //初始化连接池，各连接池并行预热
+        reidsPool.initPool();
 
-                    List<String> masterAddr = jedis.sentinelGetMasterAddrByName(masterName);
-                    slaveInfos = jedis.sentinelSlaves(masterName);
 
-                    slaveHaps = new ArrayList<>();
-                    for(Map<String,String>slaveInfo : slaveInfos) {
 
-                        //下线状态的slave也会查出来，跳过下线状态的
-                        String sdownTime = slaveInfo.get("s-down-time");
-                        if(!(sdownTime == null || "0".equals(sdownTime))){
-                            continue;
-                        }
-                        String host = slaveInfo.get("ip");
-                        String port = slaveInfo.get("port");
-                        HostAndPort hostAndPort = new HostAndPort(host, Integer.parseInt(port));
+        logger.info("Redis master running at " + master + ", starting Sentinel listeners...");
 
-                        slaveHaps.add(hostAndPort);
-                    }
+        sentinelActor = reidsPool;
+        if (sentinelInfo.getCoalesceMillis() > 0) {
+            eventAggregator = new SentinelEventAggregator(reidsPool, sentinelInfo.getCoalesceMillis());
+            sentinelActor = eventAggregator;
+        }
+        try {
+            sentinelEventLoop = new SentinelEventLoop(masterNames, sentinelActor);
+        } catch (IOException e) {
+            throw new JedisConnectionException("Cannot open sentinel event loop", e);
+        }
+        sentinelEventLoop.setTimeout(sentinelInfo.getTimeout());
+
+        //订阅断开期间的事件会丢失，每次重新订阅后和定期与sentinel对账
+        reconciler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("redis-sentinel-reconciler"));
+        sentinelEventLoop.setSubscribedCallback(new Runnable() {
+            @Override
+            public void run() {
+                scheduleReconcile();
+            }
+        });
+        long interval = sentinelInfo.getReconcileIntervalMillis();
+        if (interval > 0) {
+            reconciler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    scheduleReconcile();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        sentinelEventLoop.start(sentinelHaps);
 
-                    // connected to sentinel...
-                    sentinelAvailable = true;
+    }
 
-                    if (masterAddr == null || masterAddr.size() != 2) {
-                        logger.warn("Can not get master addr, master name: " + masterName + ". Sentinel: " + hap
-                                + ".");
-                        continue;
+    private void scheduleReconcile() {
+        if (!reconcilePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reconciler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    reconcilePending.set(false);
+                    try {
+                        reconcile();
+                    } catch (Exception e) {
+                        logger.error("occur exception while reconcile with sentinels", e);
                     }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //已关闭
+            reconcilePending.set(false);
+        }
+    }
 
-                    master = Utils.toHostAndPort(masterAddr);
+    /**
+     * 重新向sentinel查询主从信息，与连接池当前拓扑比较，只应用差异：
+     * master不一致时切换master，sentinel认为在线而连接池中没有的slave上线，连接池中有而sentinel认为不在线的slave下线
+     */
+    public void reconcile() {
+        if (sentinelActor == null) {
+            //尚未初始化
+            return;
+        }
+        Map<String, MasterAddr> found = discover();
+        for (String masterName : sentinelInfo.getMasterNames()) {
+            MasterAddr addr = found.get(masterName);
+            if (addr == null || addr.master == null) {
+                logger.warn("Cannot reconcile " + masterName + ", "
+                        + (addr != null && addr.undetermined ? "sentinels disagree" : "no sentinel answered"));
+                continue;
+            }
 
-                    logger.info("Found Redis master at " + master);
-                    break;
+            if (!addr.master.equals(reidsPool.getMaster(masterName))) {
+                logger.warn("Master of " + masterName + " is " + addr.master + " according to sentinels, switching");
+                sentinelActor.switchMaster(masterName, addr.master);
+            }
 
-                } catch (JedisConnectionException e) {
-                    logger.warn("Cannot connect to sentinel running @ " + hap + ". Trying next one.");
-                } finally {
-                    if (jedis != null) {
-                        jedis.close();
-                    }
+            List<HostAndPort> slaves = reidsPool.getSlaves(masterName);
+            for (HostAndPort slave : addr.slaves) {
+                if (!slave.equals(addr.master) && !slaves.contains(slave)) {
+                    logger.warn("Slave " + slave + " of " + masterName + " is up according to sentinels");
+                    sentinelActor.nsdownSlave(masterName, slave);
+                }
+            }
+            for (HostAndPort slave : slaves) {
+                if (!addr.slaves.contains(slave)) {
+                    logger.warn("Slave " + slave + " of " + masterName + " is down according to sentinels");
+                    sentinelActor.sdownSlave(masterName, slave);
                 }
             }
+        }
+    }
 
+    /**
+     * 并行向所有sentinel查询所有master，整体不超过discoveryTimeoutMillis
+     * <p/>
+     * 每个master取过半回答的sentinel给出的地址；sentinel都连不上的master不在结果中，
+     * 能连上但都没有监控的master结果中master为null，没有地址过半时undetermined为true
+     */
+    private Map<String, MasterAddr> discover() {
+        List<String> masterNames = sentinelInfo.getMasterNames();
 
-            if (master == null) {
-                if (sentinelAvailable) {
-                    // can connect to sentinel, but master name seems to not
-                    // monitored
-                    this.shutdownSentinels();
-                    throw new JedisException("Can connect to sentinel, but " + masterName
-                            + " seems to be not monitored...");
-                } else {
-                    this.shutdownSentinels();
-                    throw new JedisConnectionException("All sentinels down, cannot determine where is "
-                            + masterName + " master is running...");
+        List<Callable<MasterAddr>> tasks = new ArrayList<>();
+        for (String masterName : masterNames) {
+            for (HostAndPort hap : sentinelHaps) {
+                tasks.add(query(hap, masterName));
+            }
+        }
+        if (tasks.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        List<Future<MasterAddr>> futures;
+        try {
+            futures = getDiscoveryExecutor().invokeAll(tasks, sentinelInfo.getDiscoveryTimeoutMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while finding masters from sentinels", e);
+        }
+
+        Map<String, MasterAddr> found = new HashMap<>();
+        for (int i = 0; i < masterNames.size(); i++) {
+            String masterName = masterNames.get(i);
+            List<Future<MasterAddr>> answers = futures.subList(i * sentinelHaps.size(), (i + 1) * sentinelHaps.size());
+
+            Map<HostAndPort, Integer> votes = new HashMap<>();
+            Map<HostAndPort, List<HostAndPort>> slaves = new HashMap<>();
+            int answered = 0;
+            boolean sentinelAvailable = false;
+            HostAndPort master = null;
+            for (int j = 0; j < answers.size(); j++) {
+                MasterAddr addr = answer(answers.get(j), sentinelHaps.get(j), masterName);
+                if (addr == null) {
+                    continue;
+                }
+                // connected to sentinel...
+                sentinelAvailable = true;
+                if (addr.master == null) {
+                    continue;
+                }
+
+                answered++;
+                Integer count = votes.get(addr.master);
+                votes.put(addr.master, count == null ? 1 : count + 1);
+                if (!slaves.containsKey(addr.master)) {
+                    slaves.put(addr.master, addr.slaves);
+                }
+                if (master == null || votes.get(addr.master) > votes.get(master)) {
+                    master = addr.master;
                 }
             }
 
-            //构建一个masterName
-            reidsPool.buildMasterSlaveInfo(masterName, master, slaveHaps);
+            if (master != null && votes.get(master) * 2 > answered) {
+                found.put(masterName, new MasterAddr(master, slaves.get(master)));
+            } else if (master != null) {
+                logger.warn("Sentinels disagree on master " + masterName + ": " + votes + ", no majority");
+                found.put(masterName, new MasterAddr(null, null, true));
+            } else if (sentinelAvailable) {
+                found.put(masterName, new MasterAddr(null, null));
+            }
         }
+        return found;
+    }
 
-        //初始化线程池
-        reidsPool.initPool();
+    private ExecutorService getDiscoveryExecutor() {
+        if (discoveryExecutor == null) {
+            synchronized (this) {
+                if (discoveryExecutor == null) {
+                    //最多MAX_DISCOVERY_THREADS个线程，空闲后回收
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_DISCOVERY_THREADS, MAX_DISCOVERY_THREADS,
+                            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                            new NamedThreadFactory("redis-sentinel-discovery"));
+                    executor.allowCoreThreadTimeOut(true);
+                    discoveryExecutor = executor;
+                }
+            }
+        }
+        return discoveryExecutor;
+    }
 
+    /**
+     * 向一个sentinel查询master地址和在线的slave
+     */
+    private Callable<MasterAddr> query(final HostAndPort hap, final String masterName) {
+        return new Callable<MasterAddr>() {
+            @Override
+            public MasterAddr call() throws Exception {
+                logger.info("Connecting to Sentinel " + hap + " for " + masterName);
 
+                Jedis jedis = new Jedis(hap.getHost(), hap.getPort(), sentinelInfo.getTimeout());
+                try {
+                    List<String> masterAddr = jedis.sentinelGetMasterAddrByName(masterName);
+                    if (masterAddr == null || masterAddr.size() != 2) {
+                        logger.warn("Can not get master addr, master name: " + masterName + ". Sentinel: " + hap
+                                + ".");
+                        return new MasterAddr(null, null);
+                    }
 
-        logger.info("Redis master running at " + master + ", starting Sentinel listeners...");
+                    List<HostAndPort> slaveHaps = new ArrayList<>();
+                    for(Map<String,String>slaveInfo : jedis.sentinelSlaves(masterName)) {
 
-        for (String sentinel : sentinels) {
-            final HostAndPort hap = Utils.toHostAndPort(Arrays.asList(sentinel.split(":")));
-            MasterListener masterListener = new MasterListener(masterNames, hap.getHost(), hap.getPort(),reidsPool);
-            masterListeners.add(masterListener);
-            new Thread(masterListener).start();
-        }
+                        //下线状态的slave也会查出来，跳过下线状态的
+                        String sdownTime = slaveInfo.get("s-down-time");
+                        if(!(sdownTime == null || "0".equals(sdownTime))){
+                            continue;
+                        }
+                        String host = slaveInfo.get("ip");
+                        String port = slaveInfo.get("port");
+                        slaveHaps.add(new HostAndPort(host, Integer.parseInt(port)));
+                    }
+                    return new MasterAddr(Utils.toHostAndPort(masterAddr), slaveHaps);
+                } finally {
+                    jedis.close();
+                }
+            }
+        };
+    }
 
+    /**
+     * 查询结果，sentinel连不上或超时返回null
+     */
+    private static MasterAddr answer(Future<MasterAddr> future, HostAndPort hap, String masterName) {
+        if (future.isCancelled()) {
+            logger.warn("Sentinel " + hap + " did not answer " + masterName + " in time.");
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            logger.warn("Cannot get " + masterName + " from sentinel running @ " + hap + ": " + e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
 
     public void shutdownSentinels(){
-        for (MasterListener masterListener : masterListeners) {
-            masterListener.shutdown();
+        if (sentinelEventLoop != null) {
+            sentinelEventLoop.shutdown();
+        }
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+        if (eventAggregator != null) {
+            eventAggregator.shutdown();
+        }
+        if (discoveryExecutor != null) {
+            discoveryExecutor.shutdownNow();
         }
     }
 
@@ -1,19 +1,46 @@
 package com.didapinche.commons.redis;
 
+import com.didapinche.commons.redis.balance.EwmaSlaveBalancer;
+import com.didapinche.commons.redis.balance.LeastOutstandingSlaveBalancer;
+import com.didapinche.commons.redis.balance.RoundRobinSlaveBalancer;
+import com.didapinche.commons.redis.balance.SlaveBalancer;
+import com.didapinche.commons.redis.balance.SmoothWeightedRoundRobinSlaveBalancer;
+import com.didapinche.commons.redis.balance.WeightedRandomSlaveBalancer;
+import com.didapinche.commons.redis.codec.CompressionCodec;
+import com.didapinche.commons.redis.codec.StringCodec;
+import com.didapinche.commons.redis.codec.TypedRedisClient;
+import com.didapinche.commons.redis.exceptions.RedisClientException;
+import com.didapinche.commons.redis.nio.NioRedisTransport;
+import com.didapinche.commons.redis.nio.RespCommand;
+import com.didapinche.commons.redis.sentinel.SentinelActor;
+import com.didapinche.commons.redis.sentinel.SentinelEventAggregator;
+import com.didapinche.commons.redis.sentinel.SentinelEventLoop;
 import com.didapinche.commons.redis.sentinel.SentinelsManager;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
+import redis.clients.jedis.BitOP;
+import redis.clients.jedis.BuilderFactory;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author 罗立东 rod
@@ -49,6 +76,582 @@ public class MasterSlaveRedisTest extends RedisTestBase {
 
     }
 
+    /**
+     * pipeline批量读写
+     */
+    @Test
+    public void testBatch() throws InterruptedException {
+        RedisBatch writeBatch = client.batch();
+        BatchResponse<String> setResponse = writeBatch.set("batchKey", "batchValue");
+        BatchResponse<Long> hsetResponse = writeBatch.hset("batchHash", "field", "value");
+        writeBatch.execute();
+
+        Assert.assertEquals("OK", setResponse.get());
+        Assert.assertNotNull(hsetResponse.get());
+
+        //主从复制有延时
+        Thread.sleep(100);
+
+        RedisBatch readBatch = client.batch();
+        BatchResponse<String> getResponse = readBatch.get("batchKey");
+        BatchResponse<String> hgetResponse = readBatch.hget("batchHash", "field");
+        Assert.assertTrue(readBatch.isReadonly());
+        readBatch.execute();
+
+        Assert.assertEquals("batchValue", getResponse.get());
+        Assert.assertEquals("value", hgetResponse.get());
+    }
+
+    /**
+     * 并发get合并成mget
+     */
+    @Test
+    public void testReadCoalescing() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            client.set("coalesceKey" + i, "coalesceValue" + i);
+        }
+        //主从复制有延时
+        Thread.sleep(100);
+
+        client.setReadCoalescing(true);
+        try {
+            final AtomicInteger errors = new AtomicInteger(0);
+            ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(20);
+            for (int i = 0; i < 20; i++) {
+                final int index = i;
+                threadPoolExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!("coalesceValue" + index).equals(client.get("coalesceKey" + index))) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            threadPoolExecutor.shutdown();
+            Assert.assertTrue(threadPoolExecutor.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, errors.get());
+
+            //不存在的key与单独get一致返回null，非string类型的key按mget的语义返回null
+            Assert.assertNull(client.get("coalesceMissingKey"));
+            client.hset("coalesceHashKey", "field", "value");
+            Thread.sleep(100);
+            Assert.assertNull(client.get("coalesceHashKey"));
+            assertHgetWrongType("coalesceKey0");
+        } finally {
+            client.setReadCoalescing(false);
+        }
+
+        Assert.assertNull(client.get("coalesceMissingKey"));
+        assertHgetWrongType("coalesceKey0");
+        client.del("coalesceHashKey");
+    }
+
+    /**
+     * hget类型错误时合并与否都抛出RedisClientException
+     */
+    private void assertHgetWrongType(String stringKey) {
+        try {
+            client.hget(stringKey, "field");
+            Assert.fail("hget on a string should fail");
+        } catch (RedisClientException e) {
+            //expected
+        }
+    }
+
+    /**
+     * 异步客户端，关闭后拒绝新命令
+     */
+    @Test
+    public void testAsyncClient() throws Exception {
+        DefaultAsyncRedisClient asyncClient = new DefaultAsyncRedisClient(client);
+        try {
+            Assert.assertEquals("OK", asyncClient.set("asyncKey", "asyncValue").get(1, TimeUnit.SECONDS));
+            Assert.assertNotNull(asyncClient.hset("asyncHashKey", "field", "value").get(1, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Future<String> value = asyncClient.get("asyncKey");
+            Future<String> field = asyncClient.hget("asyncHashKey", "field");
+            Assert.assertEquals("asyncValue", value.get(1, TimeUnit.SECONDS));
+            Assert.assertEquals("value", field.get(1, TimeUnit.SECONDS));
+            Assert.assertEquals(0, asyncClient.getInFlight());
+        } finally {
+            client.del("asyncKey");
+            client.del("asyncHashKey");
+            asyncClient.destroy();
+        }
+
+        try {
+            asyncClient.get("asyncKey");
+            Assert.fail("closed async client should reject commands");
+        } catch (RedisClientException e) {
+            //expected
+        }
+    }
+
+    /**
+     * 单key命令走nio多路复用连接
+     */
+    @Test
+    public void testNioTransport() throws InterruptedException {
+        NioRedisTransport transport = new NioRedisTransport();
+        client.setTransport(transport);
+        try {
+            Assert.assertEquals("OK", client.set("nioKey", "nioValue"));
+            Assert.assertEquals(Long.valueOf(1), client.hset("nioHash", "field", "value"));
+            Assert.assertEquals(Long.valueOf(11), client.incrBy("nioCounter", 11));
+            //主从复制有延时
+            Thread.sleep(100);
+
+            Assert.assertEquals("nioValue", client.get("nioKey"));
+            Assert.assertEquals("value", client.hget("nioHash", "field"));
+            Assert.assertEquals("value", client.hgetAll("nioHash").get("field"));
+            Assert.assertNull(client.get("nioMissingKey"));
+
+            client.del("nioKey");
+            client.del("nioHash");
+            client.del("nioCounter");
+        } finally {
+            client.setTransport(null);
+            transport.shutdown();
+        }
+    }
+
+    /**
+     * 相同的并发读只执行一次
+     */
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        //参数中含有分隔字符时不同的参数列表不能得到相同的标识
+        Assert.assertNotEquals(RespCommand.of("k", BuilderFactory.STRING_LIST, "HMGET", "k", "a\u0000b").signature(),
+                RespCommand.of("k", BuilderFactory.STRING_LIST, "HMGET", "k", "a", "b").signature());
+
+        client.set("flightKey", "flightValue");
+        client.rpush("flightList", "a", "b", "c");
+        //主从复制有延时
+        Thread.sleep(100);
+
+        SingleFlight singleFlight = new SingleFlight();
+        singleFlight.setFamilies(new HashSet<String>(Arrays.asList(SingleFlight.STRING, SingleFlight.LIST)));
+        client.setSingleFlight(singleFlight);
+        try {
+            final AtomicInteger errors = new AtomicInteger(0);
+            ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(20);
+            for (int i = 0; i < 200; i++) {
+                threadPoolExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!"flightValue".equals(client.get("flightKey"))) {
+                            errors.incrementAndGet();
+                        }
+                        List<String> list = client.lrange("flightList", 0, -1);
+                        if (!Arrays.asList("a", "b", "c").equals(list)) {
+                            errors.incrementAndGet();
+                        }
+                        //共享的结果各自一份，修改互不影响
+                        list.clear();
+                    }
+                });
+            }
+            threadPoolExecutor.shutdown();
+            Assert.assertTrue(threadPoolExecutor.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, errors.get());
+        } finally {
+            client.setSingleFlight(null);
+            client.del("flightKey");
+            client.del("flightList");
+        }
+    }
+
+    /**
+     * 各种slave选择策略下读写正常
+     */
+    @Test
+    public void testSlaveBalancer() throws InterruptedException {
+        client.set("balanceKey", "balanceValue");
+        //主从复制有延时
+        Thread.sleep(100);
+
+        SlaveBalancer before = client.getPool().getSlaveBalancer();
+        HostAndPort slave = client.getPool().getSlaveHaps().get(0);
+        try {
+            for (SlaveBalancer balancer : Arrays.asList(new RoundRobinSlaveBalancer(),
+                    new LeastOutstandingSlaveBalancer(), new EwmaSlaveBalancer(),
+                    new WeightedRandomSlaveBalancer(), new SmoothWeightedRoundRobinSlaveBalancer())) {
+                client.getPool().setSlaveBalancer(balancer);
+                for (int i = 0; i < 20; i++) {
+                    Assert.assertEquals("balanceValue", client.get("balanceKey"));
+                }
+            }
+
+            //运行时调整权重，权重为0的slave不再分配读流量
+            client.getPool().getNodeWeights().set(slave, 0);
+            for (int i = 0; i < 20; i++) {
+                Assert.assertNotEquals(slave, client.getPool().selectSlave());
+            }
+        } finally {
+            client.getPool().getNodeWeights().remove(slave);
+            client.getPool().setSlaveBalancer(before);
+            client.del("balanceKey");
+        }
+    }
+
+    /**
+     * 对冲读结果正确，阈值随样本建立
+     */
+    @Test
+    public void testHedgedRead() throws InterruptedException {
+        client.set("hedgeKey", "hedgeValue");
+        client.hset("hedgeHash", "field", "value");
+        //主从复制有延时
+        Thread.sleep(100);
+
+        ReadHedger hedger = new ReadHedger();
+        hedger.setMinSamples(10);
+        client.setReadHedger(hedger);
+        try {
+            for (int i = 0; i < 300; i++) {
+                Assert.assertEquals("hedgeValue", client.get("hedgeKey"));
+                Assert.assertEquals("value", client.hget("hedgeHash", "field"));
+                Assert.assertEquals(Arrays.asList("value", null), client.hmget("hedgeHash", "field", "missing"));
+            }
+            Assert.assertTrue(hedger.getThresholdMillis("GET") >= hedger.getMinDelayMillis());
+            //预算限制：对冲请求不超过读请求的5%
+            Assert.assertTrue(hedger.getHedgeCount() <= 900 * hedger.getBudgetRatio());
+        } finally {
+            client.setReadHedger(null);
+            hedger.shutdown();
+            client.del("hedgeKey");
+            client.del("hedgeHash");
+        }
+    }
+
+    /**
+     * 拓扑变化时读请求不受影响
+     */
+    @Test
+    public void testTopologySwap() throws InterruptedException {
+        client.set("topologyKey", "topologyValue");
+        //主从复制有延时
+        Thread.sleep(100);
+
+        final MasterSlaveRedisPool pool = client.getPool();
+        final HostAndPort slave = pool.getSlaveHaps().get(0);
+        final AtomicInteger errors = new AtomicInteger(0);
+        ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 2000; i++) {
+            threadPoolExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!"topologyValue".equals(client.get("topologyKey"))) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < 20; i++) {
+            pool.sdownSlave(null, slave);
+            Assert.assertFalse(pool.getSlaveHaps().contains(slave));
+            pool.nsdownSlave(null, slave);
+            //就绪探测通过后异步加入
+            for (int j = 0; j < 100 && !pool.getSlaveHaps().contains(slave); j++) {
+                Thread.sleep(50);
+            }
+            Assert.assertTrue(pool.getSlaveHaps().contains(slave));
+        }
+        threadPoolExecutor.shutdown();
+        Assert.assertTrue(threadPoolExecutor.awaitTermination(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, errors.get());
+        client.del("topologyKey");
+    }
+
+    /**
+     * 预热后连接池中有minIdle个可用的空闲连接
+     */
+    @Test
+    public void testPoolWarmUp() {
+        MasterSlaveRedisPool pool = client.getPool();
+        HostAndPort master = pool.getMasterHap();
+        JedisPool jedisPool = new JedisPool(pool.getJedisPoolConfig(), master.getHost(), master.getPort());
+        try {
+            Assert.assertEquals(0, jedisPool.getNumIdle());
+            Assert.assertTrue(PoolWarmer.warm(Arrays.asList(jedisPool), 2, 3000));
+            Assert.assertTrue(jedisPool.getNumIdle() >= 2);
+            Assert.assertEquals(0, jedisPool.getNumActive());
+        } finally {
+            jedisPool.destroy();
+        }
+
+        //节点不可用时在截止时间内返回
+        JedisPool downPool = new JedisPool(pool.getJedisPoolConfig(), "127.0.0.1", 1);
+        try {
+            long start = System.currentTimeMillis();
+            Assert.assertFalse(PoolWarmer.warm(Arrays.asList(downPool), 2, 500));
+            Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+        } finally {
+            downPool.destroy();
+        }
+    }
+
+    /**
+     * slave就绪判断与后台探测
+     */
+    @Test
+    public void testReadinessProber() throws InterruptedException {
+        Assert.assertTrue(ReadinessProber.isReady("# Persistence\r\nloading:0\r\n# Replication\r\nrole:master\r\n"));
+        Assert.assertFalse(ReadinessProber.isReady("loading:1\r\nrole:slave\r\nmaster_link_status:up\r\n"));
+        Assert.assertFalse(ReadinessProber.isReady("loading:0\r\nrole:slave\r\nmaster_link_status:down\r\n"));
+        Assert.assertTrue(ReadinessProber.isReady("loading:0\r\nrole:slave\r\nmaster_link_status:up\r\n"));
+
+        MasterSlaveRedisPool pool = client.getPool();
+        HostAndPort slave = pool.getSlaveHaps().get(0);
+        ReadinessProber prober = new ReadinessProber();
+        final CountDownLatch ready = new CountDownLatch(1);
+        prober.probe(slave, pool.getPassWord(), pool.getTimeout(), new Runnable() {
+            @Override
+            public void run() {
+                ready.countDown();
+            }
+        });
+        Assert.assertTrue(ready.await(5, TimeUnit.SECONDS));
+
+        //节点不可用时一直重试，直到取消
+        HostAndPort down = new HostAndPort("127.0.0.1", 1);
+        final AtomicInteger admitted = new AtomicInteger(0);
+        prober.probe(down, null, 100, new Runnable() {
+            @Override
+            public void run() {
+                admitted.incrementAndGet();
+            }
+        });
+        Thread.sleep(500);
+        Assert.assertTrue(prober.isProbing(down));
+        prober.cancel(down);
+        Assert.assertFalse(prober.isProbing(down));
+        Assert.assertEquals(0, admitted.get());
+    }
+
+    /**
+     * sentinel消息解析后按顺序交给SentinelActor
+     */
+    @Test
+    public void testSentinelEventLoop() throws Exception {
+        RecordingActor actor = new RecordingActor(3);
+        SentinelEventLoop eventLoop = new SentinelEventLoop(Arrays.asList("mymaster"), actor);
+        try {
+            HostAndPort sentinel = new HostAndPort("127.0.0.1", 26379);
+            eventLoop.onMessage(sentinel, SentinelEventLoop.S_DOWN, "slave 127.0.0.1:6380 127.0.0.1 6380 @ mymaster 127.0.0.1 6379");
+            eventLoop.onMessage(sentinel, SentinelEventLoop.S_DOWN, "master mymaster 127.0.0.1 6379");
+            eventLoop.onMessage(sentinel, SentinelEventLoop.S_DOWN, "slave 127.0.0.1:6390 127.0.0.1 6390 @ other 127.0.0.1 6389");
+            eventLoop.onMessage(sentinel, SentinelEventLoop.N_S_DOWN, "slave 127.0.0.1:6380 127.0.0.1 6380 @ mymaster 127.0.0.1 6379");
+            eventLoop.onMessage(sentinel, SentinelEventLoop.SWITCH_MASTER, "mymaster 127.0.0.1 6379 127.0.0.1 6380");
+            Assert.assertTrue(actor.done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList("sdown mymaster 127.0.0.1:6380", "nsdown mymaster 127.0.0.1:6380",
+                    "switch mymaster 127.0.0.1:6380"), actor.events);
+        } finally {
+            eventLoop.shutdown();
+        }
+    }
+
+    /**
+     * 多个sentinel的相同事件和窗口内的连续变化只执行最终状态一次，窗口内先下线后上线的slave依次下线、上线
+     */
+    @Test
+    public void testSentinelEventAggregator() throws Exception {
+        RecordingActor actor = new RecordingActor(3);
+        SentinelEventAggregator aggregator = new SentinelEventAggregator(actor, 200);
+        try {
+            HostAndPort slave1 = new HostAndPort("127.0.0.1", 6380);
+            HostAndPort slave2 = new HostAndPort("127.0.0.1", 6381);
+            for (int i = 0; i < 3; i++) {
+                aggregator.sdownSlave("mymaster", slave1);
+                aggregator.sdownSlave("mymaster", slave2);
+                aggregator.switchMaster("mymaster", slave1);
+            }
+            aggregator.nsdownSlave("mymaster", slave2);
+            Assert.assertTrue(actor.done.await(5, TimeUnit.SECONDS));
+            Thread.sleep(300);
+            Assert.assertEquals(Arrays.asList("switch mymaster 127.0.0.1:6380", "sdown mymaster 127.0.0.1:6381",
+                    "nsdown mymaster 127.0.0.1:6381"), actor.events);
+            Assert.assertEquals(10, aggregator.getReceivedCount());
+            Assert.assertEquals(3, aggregator.getAppliedCount());
+        } finally {
+            aggregator.shutdown();
+        }
+    }
+
+    private static class RecordingActor implements SentinelActor {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch done;
+
+        RecordingActor(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void switchMaster(String masterName, HostAndPort newMasterHostAndPort) {
+            record("switch " + masterName + " " + newMasterHostAndPort);
+        }
+
+        @Override
+        public void sdownSlave(String masterName, HostAndPort hostAndPort) {
+            record("sdown " + masterName + " " + hostAndPort);
+        }
+
+        @Override
+        public void nsdownSlave(String masterName, HostAndPort hostAndPort) {
+            record("nsdown " + masterName + " " + hostAndPort);
+        }
+
+        @Override
+        public void buildMasterSlaveInfo(String masterName, HostAndPort masterInfo, List<HostAndPort> slaveHaps) {
+        }
+
+        @Override
+        public HostAndPort getMaster(String masterName) {
+            return null;
+        }
+
+        @Override
+        public List<HostAndPort> getSlaves(String masterName) {
+            return new ArrayList<>();
+        }
+
+        private void record(String event) {
+            events.add(event);
+            done.countDown();
+        }
+    }
+
+    /**
+     * 本地缓存命中与写失效
+     */
+    @Test
+    public void testNearCache() throws InterruptedException {
+        NearCache nearCache = new NearCache();
+        nearCache.setKeyPatterns(Arrays.asList("near*"));
+        client.setNearCache(nearCache);
+        try {
+            client.set("nearKey", "v1");
+            //主从复制有延时
+            Thread.sleep(100);
+
+            Assert.assertEquals("v1", client.get("nearKey"));
+            Assert.assertEquals("v1", client.get("nearKey"));
+            Assert.assertEquals(1, nearCache.getMissCount());
+            Assert.assertEquals(1, nearCache.getHitCount());
+
+            //写入后本地缓存失效
+            client.set("nearKey", "v2");
+            Thread.sleep(100);
+            Assert.assertEquals("v2", client.get("nearKey"));
+
+            //白名单之外不缓存
+            client.get("otherKey");
+            Assert.assertEquals(1, nearCache.size());
+
+            //覆盖目标key的多key命令同样失效
+            client.set("nearSrc", "v3");
+            client.bitop(BitOP.OR, "nearKey", "nearSrc");
+            Thread.sleep(100);
+            Assert.assertEquals("v3", client.get("nearKey"));
+
+            client.del("nearKey", "nearSrc");
+        } finally {
+            client.setNearCache(null);
+        }
+    }
+
+    /**
+     * 二进制读写
+     */
+    @Test
+    public void testBinary() throws InterruptedException {
+        byte[] key = "binaryKey".getBytes();
+        byte[] value = new byte[]{0, 1, 2, (byte) 0xff};
+        Assert.assertEquals("OK", client.set(key, value));
+
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.put(new byte[]{9, 9, 3, 4, 5});
+        buffer.flip();
+        buffer.position(2);
+        client.hset("binaryHash".getBytes(), "field".getBytes(), buffer);
+        Assert.assertEquals(2, buffer.position());
+
+        //主从复制有延时
+        Thread.sleep(100);
+
+        Assert.assertArrayEquals(value, client.get(key));
+        Assert.assertArrayEquals(new byte[]{3, 4, 5}, client.hget("binaryHash".getBytes(), "field".getBytes()));
+
+        client.del(key);
+        client.del("binaryHash".getBytes());
+    }
+
+    /**
+     * codec读写，压缩格式与旧的String格式共存
+     */
+    @Test
+    public void testTypedClient() throws InterruptedException {
+        TypedRedisClient<String> typedClient = new TypedRedisClient<>(client,
+                new CompressionCodec<String>(StringCodec.INSTANCE, 64));
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("{\"city\":\"beijing\",\"index\":").append(i).append("},");
+        }
+        typedClient.set("typedLarge", large.toString());
+        typedClient.set("typedSmall", "small");
+        client.set("typedLegacy", "legacy");
+
+        //主从复制有延时
+        Thread.sleep(100);
+
+        Assert.assertTrue(client.strlen("typedLarge") < large.length());
+        Assert.assertEquals(large.toString(), typedClient.get("typedLarge"));
+        Assert.assertEquals("small", typedClient.get("typedSmall"));
+        Assert.assertEquals("legacy", typedClient.get("typedLegacy"));
+        Assert.assertNull(typedClient.get("typedMissing"));
+
+        client.del("typedLarge");
+        client.del("typedSmall");
+        client.del("typedLegacy");
+    }
+
+    /**
+     * 分页遍历hash和set
+     */
+    @Test
+    public void testCollectionScan() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            client.hset("scanHash", "field" + i, "value" + i);
+            client.sadd("scanSet", "member" + i);
+        }
+        //主从复制有延时
+        Thread.sleep(100);
+
+        final Map<String, String> fields = new HashMap<>();
+        long count = client.hscanEach("scanHash", null, 10, new ScanIterator.Consumer<Map.Entry<String, String>>() {
+            @Override
+            public boolean accept(Map.Entry<String, String> element) {
+                fields.put(element.getKey(), element.getValue());
+                return true;
+            }
+        });
+        Assert.assertEquals(100, fields.size());
+        Assert.assertTrue(count >= 100);
+        Assert.assertEquals("value7", fields.get("field7"));
+
+        Set<String> members = new HashSet<>();
+        ScanIterator<String> iterator = client.sscanIterator("scanSet", "member1*", 10);
+        while (iterator.hasNext()) {
+            members.add(iterator.next());
+        }
+        Assert.assertEquals(11, members.size());
+
+        client.del("scanHash");
+        client.del("scanSet");
+    }
+
     /**
      * HA主动发现 自动配置初始化
      */
@@ -80,7 +683,7 @@ public class MasterSlaveRedisTest extends RedisTestBase {
         //获取slave info
         List<Map<String, String>> slavesInfo = sentinelJedis.sentinelSlaves(masterName);
 
-        List<HostAndPort> slavesHap = masterSlaveRedisPool.getSlaveHaps();
+        List<HostAndPort> slavesHap = new ArrayList<>(masterSlaveRedisPool.getSlaveHaps());
 
         //验证slave数量
         Assert.assertEquals(slavesHap.size(), slavesInfo.size());
@@ -96,6 +699,30 @@ public class MasterSlaveRedisTest extends RedisTestBase {
 
     }
 
+    /**
+     * 错过sentinel事件后，对账恢复与sentinel一致的拓扑
+     */
+    @Test
+    public void testReconcile() throws InterruptedException {
+        //初始化sentinelsManager
+        SentinelsManager sentinelsManager = (SentinelsManager) applicationContext.getBean("sentinelsManager");
+        MasterSlaveRedisPool masterSlaveRedisPool = clientWithSentinel.getPool();
+        String masterName = sentinelsManager.getSentinelInfo().getMasterNames().get(0);
+
+        //模拟漏掉了-sdown：连接池中去掉一个在线的slave
+        HostAndPort slave = masterSlaveRedisPool.getSlaveHaps().get(0);
+        masterSlaveRedisPool.sdownSlave(masterName, slave);
+        Assert.assertFalse(masterSlaveRedisPool.getSlaveHaps().contains(slave));
+
+        sentinelsManager.reconcile();
+
+        //事件合并和就绪探测都是异步的
+        for (int i = 0; i < 100 && !masterSlaveRedisPool.getSlaveHaps().contains(slave); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(masterSlaveRedisPool.getSlaveHaps().contains(slave));
+    }
+
 
     /**
      * 在读写的情况下 slave下线
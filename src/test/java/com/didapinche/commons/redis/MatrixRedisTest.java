@@ -5,8 +5,11 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.AbstractJUnit4SpringContextTests;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisShardInfo;
 import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPool;
+import redis.clients.util.SafeEncoder;
 
 import java.util.*;
 
@@ -38,7 +41,8 @@ public class MatrixRedisTest extends RedisTestBase {
         MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
         Assert.assertNotNull(pool.getMasterShardedJedisPool());
 
-        Assert.assertTrue(pool.getSlaveShardedJedisPools().size() == 1);
+        //slave池个数取各分片slave数的最大值
+        Assert.assertTrue(pool.getSlaveShardedJedisPools().size() == 2);
     }
 
     /**
@@ -49,7 +53,8 @@ public class MatrixRedisTest extends RedisTestBase {
         MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
         Assert.assertNotNull(pool.getMasterShardedJedisPool());
 
-        Assert.assertTrue(pool.getSlaveShardedJedisPools().size() == 0);
+        //master1没有slave，读master1分片的key走master
+        Assert.assertTrue(pool.getSlaveShardedJedisPools().size() == 2);
     }
 
     @Test
@@ -94,18 +99,146 @@ public class MatrixRedisTest extends RedisTestBase {
     }
 
 
+    /**
+     * 按分片连接池写入的key与ShardedJedis的分片一致
+     */
+    @Test
+    public void testShardRouting() throws InterruptedException {
+        Assert.assertTrue(matrixRedisClient.isShardRouting());
+        for (int i = 0; i < 50; i++) {
+            matrixRedisClient.set("shardRoutingKey" + i, "value" + i);
+        }
+        //主从复制有延时
+        Thread.sleep(100);
+
+        matrixRedisClient.setShardRouting(false);
+        try {
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("value" + i, matrixRedisClient.get("shardRoutingKey" + i));
+                matrixRedisClient.del("shardRoutingKey" + i);
+            }
+        } finally {
+            matrixRedisClient.setShardRouting(true);
+        }
+    }
+
+    /**
+     * slave上下线只重建包含该节点的slave池
+     */
+    @Test
+    public void testIncrementalSlaveUpdate() throws InterruptedException {
+        MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
+        int slaveSize = slaveCount(pool);
+        List<ShardedJedisPool> before = new ArrayList<>(pool.getSlaveShardedJedisPools());
+        Assert.assertTrue(before.size() >= 2);
+
+        //第一个slave池中某个master的slave
+        ShardedJedis shardedJedis = before.get(0).getResource();
+        JedisShardInfo slave = shardedJedis.getAllShardInfo().iterator().next();
+        shardedJedis.close();
+        String masterName = null;
+        for (Map.Entry<String, List<JedisShardInfo>> entry : pool.getMultiSlaveShards().entrySet()) {
+            for (JedisShardInfo shardInfo : entry.getValue()) {
+                if (shardInfo.getHost().equals(slave.getHost()) && shardInfo.getPort() == slave.getPort()) {
+                    masterName = entry.getKey();
+                }
+            }
+        }
+        HostAndPort hostAndPort = new HostAndPort(slave.getHost(), slave.getPort());
+
+        pool.sdownSlave(masterName, hostAndPort);
+        Assert.assertFalse(pool.getSlaveShardedJedisPools().contains(before.get(0)));
+        Assert.assertTrue(pool.getSlaveShardedJedisPools().contains(before.get(1)));
+
+        pool.nsdownSlave(masterName, hostAndPort);
+        //就绪探测通过后异步加入
+        for (int i = 0; i < 100 && slaveCount(pool) < slaveSize; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(before.size(), pool.getSlaveShardedJedisPools().size());
+        Assert.assertTrue(pool.getSlaveShardedJedisPools().contains(before.get(1)));
+    }
+
+    /**
+     * 一个分片少了slave，其它分片的slave仍然全部在用
+     */
+    @Test
+    public void testPerShardReplicas() throws InterruptedException {
+        MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
+        int rows = pool.getSlaveShardedJedisPools().size();
+        Assert.assertTrue(rows >= 2);
+
+        Map.Entry<String, List<JedisShardInfo>> shard = pool.getMultiSlaveShards().entrySet().iterator().next();
+        String masterName = shard.getKey();
+        List<HostAndPort> downs = new ArrayList<>();
+        for (JedisShardInfo shardInfo : shard.getValue()) {
+            downs.add(new HostAndPort(shardInfo.getHost(), shardInfo.getPort()));
+        }
+
+        try {
+            //下线该分片除第一个以外的slave
+            for (HostAndPort hostAndPort : downs.subList(1, downs.size())) {
+                pool.sdownSlave(masterName, hostAndPort);
+            }
+            Assert.assertEquals(rows, pool.getSlaveShardedJedisPools().size());
+
+            //其它分片的每个slave都在某个slave池中
+            Set<String> used = new HashSet<>();
+            for (ShardedJedisPool slavePool : pool.getSlaveShardedJedisPools()) {
+                ShardedJedis shardedJedis = slavePool.getResource();
+                for (JedisShardInfo shardInfo : shardedJedis.getAllShardInfo()) {
+                    used.add(shardInfo.getHost() + ":" + shardInfo.getPort());
+                }
+                shardedJedis.close();
+            }
+            for (List<JedisShardInfo> slaves : pool.getMultiSlaveShards().values()) {
+                for (JedisShardInfo shardInfo : slaves) {
+                    Assert.assertTrue(used.contains(shardInfo.getHost() + ":" + shardInfo.getPort()));
+                }
+            }
+
+            matrixRedisClient.set("perShardReplicasKey", "value");
+            Assert.assertEquals("value", matrixRedisClient.get("perShardReplicasKey"));
+            matrixRedisClient.del("perShardReplicasKey");
+        } finally {
+            for (HostAndPort hostAndPort : downs.subList(1, downs.size())) {
+                pool.nsdownSlave(masterName, hostAndPort);
+            }
+            for (int i = 0; i < 100 && pool.getMultiSlaveShards().get(masterName).size() < downs.size(); i++) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static int slaveCount(MatrixRedisPool pool) {
+        int count = 0;
+        for (List<JedisShardInfo> slaves : pool.getMultiSlaveShards().values()) {
+            count += slaves.size();
+        }
+        return count;
+    }
+
+    private static int maxSlaveCount(MatrixRedisPool pool) {
+        int count = 0;
+        for (List<JedisShardInfo> slaves : pool.getMultiSlaveShards().values()) {
+            count = Math.max(count, slaves.size());
+        }
+        return count;
+    }
+
     @Test
     public void testSdown() throws InterruptedException {
         MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
-        int slaveSize = pool.getSlaveShardedJedisPools().size();
+        int slaveSize = slaveCount(pool);
         System.out.println("请下线一台slave......");
 
         Thread.currentThread().sleep(30000);
 
 
 
-        int newSlaveSize = pool.getSlaveShardedJedisPools().size();
+        int newSlaveSize = slaveCount(pool);
         Assert.assertTrue(newSlaveSize == (slaveSize -1));
+        Assert.assertEquals(maxSlaveCount(pool), pool.getSlaveShardedJedisPools().size());
 
     }
 
@@ -113,17 +246,118 @@ public class MatrixRedisTest extends RedisTestBase {
     @Test
     public void testnSdown() throws InterruptedException {
         MatrixRedisPool pool =  (MatrixRedisPool)matrixRedisClient.getRedisPool();
-        int slaveSize = pool.getSlaveShardedJedisPools().size();
+        int slaveSize = slaveCount(pool);
         System.out.println("请补齐一台slave......");
 
         Thread.currentThread().sleep(30000);
 
 
 
-        int newSlaveSize = pool.getSlaveShardedJedisPools().size();
+        int newSlaveSize = slaveCount(pool);
         Assert.assertTrue(newSlaveSize == (slaveSize + 1));
+        Assert.assertEquals(maxSlaveCount(pool), pool.getSlaveShardedJedisPools().size());
+
+
+    }
+
 
 
+    @Test
+    public void testBatch(){
+        RedisBatch writeBatch = matrixRedisClient.batch();
+        List<BatchResponse<String>> setResponses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            setResponses.add(writeBatch.set("batchKey" + i, "batchValue" + i));
+        }
+        writeBatch.execute();
+
+        for (BatchResponse<String> setResponse : setResponses) {
+            Assert.assertEquals("OK", setResponse.get());
+        }
+
+        RedisBatch readBatch = matrixRedisClient.batch();
+        List<BatchResponse<String>> getResponses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            getResponses.add(readBatch.get("batchKey" + i));
+        }
+        readBatch.execute();
+
+        //结果顺序与排队顺序一致
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("batchValue" + i, getResponses.get(i).get());
+        }
+    }
+
+
+
+    @Test
+    public void testMultiKey(){
+        String[] keysvalues = new String[200];
+        String[] keys = new String[100];
+        for (int i = 0; i < 100; i++) {
+            keys[i] = "multiKey" + i;
+            keysvalues[2 * i] = keys[i];
+            keysvalues[2 * i + 1] = "multiValue" + i;
+        }
+        Assert.assertEquals("OK", matrixRedisClient.mset(keysvalues));
+
+        List<String> values = matrixRedisClient.mget(keys);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("multiValue" + i, values.get(i));
+        }
+
+        Assert.assertEquals(Long.valueOf(100), matrixRedisClient.del(keys));
+    }
+
+    /**
+     * byte[]多key命令同样按分片拆分
+     */
+    @Test
+    public void testBinaryMultiKey() throws InterruptedException {
+        byte[][] keysvalues = new byte[200][];
+        byte[][] keys = new byte[100][];
+        for (int i = 0; i < 100; i++) {
+            keys[i] = SafeEncoder.encode("binaryMultiKey" + i);
+            keysvalues[2 * i] = keys[i];
+            keysvalues[2 * i + 1] = SafeEncoder.encode("binaryMultiValue" + i);
+        }
+        Assert.assertEquals("OK", matrixRedisClient.mset(keysvalues));
+        //主从复制有延时
+        Thread.sleep(100);
+
+        List<byte[]> values = matrixRedisClient.mget(keys);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("binaryMultiValue" + i, SafeEncoder.encode(values.get(i)));
+        }
+
+        Assert.assertEquals(Long.valueOf(100), matrixRedisClient.del(keys));
+    }
+
+    /**
+     * 并行遍历所有分片
+     */
+    @Test
+    public void testScanKeys() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            matrixRedisClient.set("scanKey" + i, "scanValue" + i);
+        }
+        //主从复制有延时
+        Thread.sleep(100);
+
+        Set<String> keys = new HashSet<>();
+        ScanIterator<String> iterator = matrixRedisClient.scanKeys("scanKey*", 10, 2);
+        try {
+            while (iterator.hasNext()) {
+                keys.add(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+        Assert.assertEquals(100, keys.size());
+
+        for (int i = 0; i < 100; i++) {
+            matrixRedisClient.del("scanKey" + i);
+        }
     }
 
 